@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.benchmark;
+
+import com.falsepattern.jcodegen.CType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CTypeBenchmark {
+    private final CType nested = CType.of(Map.Entry.class).arrayOf();
+    private final String name = "java.util.concurrent.ConcurrentHashMap";
+    private final CType string = CType.of(String.class);
+    private final CType list = CType.of(List.class);
+    private final CType parameterized = CType.of(Map.class).withTypeArguments(string, list.withTypeArguments(CType.wildcardExtends(CType.of(Number.class))));
+    private final CType matrix = CType.of("double", 3);
+    private final CType missing = CType.of("com.example.Missing", 0);
+    private final ClassLoader loader = CTypeBenchmark.class.getClassLoader();
+
+    @Benchmark
+    public CType ofClassHit() {
+        return CType.of(String.class);
+    }
+
+    @Benchmark
+    public CType ofNameHit() {
+        return CType.of(name, 0);
+    }
+
+    @Benchmark
+    public CType withTypeArgumentsHit() {
+        return list.withTypeArguments(string);
+    }
+
+    @Benchmark
+    public String getParameterizedSimpleName() {
+        return parameterized.getSimpleName();
+    }
+
+    @Benchmark
+    public String getSimpleName() {
+        return nested.getSimpleName();
+    }
+
+    @Benchmark
+    public String getName() {
+        return nested.getName();
+    }
+
+    @Benchmark
+    public int hashCodeOf() {
+        return nested.hashCode();
+    }
+
+    @Benchmark
+    public Optional<Class<?>> tryGetClassArray() {
+        return matrix.tryGetClass(loader);
+    }
+
+    @Benchmark
+    public Optional<Class<?>> tryGetClassMissing() {
+        return missing.tryGetClass(loader);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.benchmark;
+
+import lombok.val;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Prints the retained heap of a large model built with and without {@link com.falsepattern.jcodegen.MemberInterner}.
+ * Run with {@code java -cp target/jcodegen-<version>-jar-with-dependencies.jar com.falsepattern.jcodegen.benchmark.InternHeapReport [classes] [fields]}.
+ */
+public class InternHeapReport {
+    public static void main(String[] args) {
+        val classes = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        val fields = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        val plain = measure(classes, fields, false);
+        val interned = measure(classes, fields, true);
+        System.out.printf("Model: %d classes, %d fields per bean class%n", classes, fields);
+        System.out.printf("%-10s %14s %14s%n", "mode", "retained (B)", "per class (B)");
+        System.out.printf("%-10s %14d %14d%n", "plain", plain, plain / classes);
+        System.out.printf("%-10s %14d %14d%n", "interned", interned, interned / classes);
+        System.out.printf("Saved %.1f%%%n", 100.0 * (plain - interned) / plain);
+    }
+
+    private static long measure(int classes, int fields, boolean internMembers) {
+        val before = usedHeap();
+        List<?> model = Models.hierarchy("com.example", classes / 2, fields, internMembers);
+        val after = usedHeap();
+        if (model.size() != classes / 2 * 2) throw new AssertionError();
+        model = null;
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        val memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+}
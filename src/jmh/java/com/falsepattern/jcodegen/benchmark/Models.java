@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.benchmark;
+
+import com.falsepattern.jcodegen.AccessSpecifier;
+import com.falsepattern.jcodegen.CClass;
+import com.falsepattern.jcodegen.CConstructor;
+import com.falsepattern.jcodegen.CField;
+import com.falsepattern.jcodegen.CType;
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sample models shared by the benchmarks.
+ */
+public class Models {
+    private static final CType[] FIELD_TYPES = {CType.INT, CType.LONG, CType.DOUBLE, CType.of(String.class), CType.of(List.class), CType.INT.arrayOf()};
+
+    /**
+     * A public class with the given amount of fields, a getter and setter for every field, and a public no-arg
+     * constructor.
+     */
+    public static CClass beanClass(String pkg, String name, int fieldCount) {
+        return beanClass(pkg, name, fieldCount, false);
+    }
+
+    public static CClass beanClass(String pkg, String name, int fieldCount, boolean internMembers) {
+        val cClass = CClass.builder()
+                           .pkg(pkg)
+                           .name(name)
+                           .accessSpecifier(AccessSpecifier.builder().visibility(AccessSpecifier.Visibility.PUBLIC).build())
+                           .internMembers(internMembers)
+                           .build();
+        for (int i = 0; i < fieldCount; i++) {
+            val field = CField.builder().type(FIELD_TYPES[i % FIELD_TYPES.length]).name("field" + i).build();
+            cClass.addField(field);
+            cClass.addMethod(field.getter());
+            cClass.addMethod(field.setter());
+        }
+        cClass.addConstructor(CConstructor.builder()
+                                          .accessSpecifier(AccessSpecifier.builder().visibility(AccessSpecifier.Visibility.PUBLIC).build())
+                                          .build());
+        return cClass;
+    }
+
+    /**
+     * Pairs of bean classes and subclasses that inherit their constructors through {@link CClass#superConstructors}.
+     */
+    public static List<CClass> hierarchy(String pkg, int pairs, int fieldCount) {
+        return hierarchy(pkg, pairs, fieldCount, false);
+    }
+
+    public static List<CClass> hierarchy(String pkg, int pairs, int fieldCount, boolean internMembers) {
+        val result = new ArrayList<CClass>(pairs * 2);
+        for (int i = 0; i < pairs; i++) {
+            val base = beanClass(pkg, "Base" + i, fieldCount, internMembers);
+            val sub = CClass.builder()
+                            .pkg(pkg)
+                            .name("Sub" + i)
+                            .accessSpecifier(AccessSpecifier.builder().visibility(AccessSpecifier.Visibility.PUBLIC).build())
+                            .superclass(base.getCType())
+                            .internMembers(internMembers)
+                            .build();
+            base.superConstructors(sub);
+            result.add(base);
+            result.add(sub);
+        }
+        return result;
+    }
+}
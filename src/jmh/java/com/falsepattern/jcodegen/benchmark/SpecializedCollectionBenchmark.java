@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.benchmark;
+
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.compile.InMemoryCompiler;
+import com.falsepattern.jcodegen.template.CollectionTemplates;
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Collections generated from {@link CollectionTemplates} for int elements against boxed JDK collections. The generated
+ * classes extend the abstract classes below, which is how the benchmark calls them without reflection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SpecializedCollectionBenchmark {
+    public static abstract class IntIntMap {
+        public abstract void put(int key, int value);
+
+        public abstract int get(int key, int missing);
+    }
+
+    public static abstract class IntList {
+        public abstract void add(int element);
+
+        public abstract int get(int index);
+
+        public abstract int size();
+    }
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private int[] keys;
+    private Supplier<IntIntMap> maps;
+    private Supplier<IntList> lists;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        val random = new Random(42);
+        keys = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = random.nextInt();
+        }
+        val pkg = "bench.specialized";
+        val map = CollectionTemplates.hashMap(pkg).toBuilder().superclass(CType.of(IntIntMap.class)).build()
+                                     .expand(bindings(CollectionTemplates.K, CollectionTemplates.V));
+        val list = CollectionTemplates.arrayList(pkg).toBuilder().superclass(CType.of(IntList.class)).build()
+                                      .expand(bindings(CollectionTemplates.E));
+        val classes = InMemoryCompiler.builder().build().compile(Arrays.asList(map, list));
+        val mapConstructor = classes.get(pkg + "." + map.getName()).asSubclass(IntIntMap.class).getConstructor();
+        val listConstructor = classes.get(pkg + "." + list.getName()).asSubclass(IntList.class).getConstructor();
+        maps = () -> newInstance(mapConstructor);
+        lists = () -> newInstance(listConstructor);
+    }
+
+    private static HashMap<CType, CType> bindings(CType... variables) {
+        val result = new HashMap<CType, CType>();
+        for (val variable: variables) {
+            result.put(variable, CType.INT);
+        }
+        return result;
+    }
+
+    private static <T> T newInstance(java.lang.reflect.Constructor<? extends T> constructor) {
+        try {
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public long mapSpecialized() {
+        val map = maps.get();
+        for (val key: keys) {
+            map.put(key, key);
+        }
+        long sum = 0;
+        for (val key: keys) {
+            sum += map.get(key, 0);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long mapBoxed() {
+        val map = new HashMap<Integer, Integer>();
+        for (val key: keys) {
+            map.put(key, key);
+        }
+        long sum = 0;
+        for (val key: keys) {
+            sum += map.getOrDefault(key, 0);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long listSpecialized() {
+        val list = lists.get();
+        for (val key: keys) {
+            list.add(key);
+        }
+        long sum = 0;
+        for (int i = 0; i < list.size(); i++) {
+            sum += list.get(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long listBoxed() {
+        val list = new ArrayList<Integer>();
+        for (val key: keys) {
+            list.add(key);
+        }
+        long sum = 0;
+        for (int i = 0; i < list.size(); i++) {
+            sum += list.get(i);
+        }
+        return sum;
+    }
+}
@@ -21,28 +21,163 @@
  */
 package com.falsepattern.jcodegen;
 
-import lombok.AllArgsConstructor;
-import lombok.Builder;
+import lombok.NonNull;
 
-@Builder
-@AllArgsConstructor
-public class AccessSpecifier {
+import java.lang.reflect.Modifier;
+
+/**
+ * Visibility and modifiers of a class or member. Instances are canonical: every combination exists exactly once, so
+ * they can be compared by identity, and their source prefix is computed up front.
+ * <p>
+ * {@link #modifiers} uses the bit values of {@link Modifier}, which are the same as the JVM access flags.
+ */
+public final class AccessSpecifier {
     public enum Visibility {
-        PUBLIC("public"), PACKAGE(""), PRIVATE("private");
+        PUBLIC("public", Modifier.PUBLIC), PROTECTED("protected", Modifier.PROTECTED), PACKAGE("", 0), PRIVATE("private", Modifier.PRIVATE);
         public final String prefix;
-        Visibility(String prefix) {
+        public final int modifier;
+        Visibility(String prefix, int modifier) {
             this.prefix = prefix;
+            this.modifier = modifier;
+        }
+    }
+
+    private static final int VISIBILITY_MASK = Modifier.PUBLIC | Modifier.PROTECTED | Modifier.PRIVATE;
+    /**
+     * Every modifier except the visibility that can be represented.
+     */
+    private static final int FLAG_MASK = Modifier.STATIC | Modifier.FINAL | Modifier.ABSTRACT | Modifier.SYNCHRONIZED | Modifier.VOLATILE | Modifier.TRANSIENT | Modifier.NATIVE;
+    private static final AccessSpecifier[] TABLE = new AccessSpecifier[(FLAG_MASK | VISIBILITY_MASK) + 1];
+
+    static {
+        for (Visibility visibility: Visibility.values()) {
+            for (int flags = 0; flags <= FLAG_MASK; flags++) {
+                if ((flags & ~FLAG_MASK) == 0) {
+                    TABLE[visibility.modifier | flags] = new AccessSpecifier(visibility, flags);
+                }
+            }
         }
     }
-    @Builder.Default
-    public final Visibility visibility = Visibility.PRIVATE;
-    @Builder.Default
-    public final boolean isStatic = false;
-    @Builder.Default
-    public final boolean isFinal = false;
 
+    public final Visibility visibility;
+    public final boolean isStatic;
+    public final boolean isFinal;
+    public final boolean isAbstract;
+    public final boolean isSynchronized;
+    public final boolean isVolatile;
+    public final boolean isTransient;
+    public final boolean isNative;
+    public final int modifiers;
+    private final String prefix;
+
+    private AccessSpecifier(Visibility visibility, int flags) {
+        this.visibility = visibility;
+        this.modifiers = visibility.modifier | flags;
+        this.isStatic = Modifier.isStatic(flags);
+        this.isFinal = Modifier.isFinal(flags);
+        this.isAbstract = Modifier.isAbstract(flags);
+        this.isSynchronized = Modifier.isSynchronized(flags);
+        this.isVolatile = Modifier.isVolatile(flags);
+        this.isTransient = Modifier.isTransient(flags);
+        this.isNative = Modifier.isNative(flags);
+        this.prefix = modifiers == 0 ? "" : Modifier.toString(modifiers) + " ";
+    }
+
+    /**
+     * @param modifiers Bits as in {@link Modifier}. Bits without an equivalent here (strictfp, interface) are ignored.
+     * @throws IllegalArgumentException If more than one visibility is set.
+     */
+    public static AccessSpecifier of(int modifiers) {
+        if (Integer.bitCount(modifiers & VISIBILITY_MASK) > 1) throw new IllegalArgumentException("Conflicting visibilities in modifiers " + Modifier.toString(modifiers));
+        return TABLE[modifiers & (VISIBILITY_MASK | FLAG_MASK)];
+    }
+
+    public static AccessSpecifier of(@NonNull Visibility visibility) {
+        return TABLE[visibility.modifier];
+    }
+
+    /**
+     * Replaces the former {@code new AccessSpecifier(visibility, isStatic, isFinal)} constructor. Instances are
+     * canonical and compared by identity, so they can no longer be constructed directly.
+     *
+     * @deprecated Use {@link #of(int)}, {@link #of(Visibility)} or {@link #builder()}.
+     */
+    @Deprecated
+    public static AccessSpecifier of(@NonNull Visibility visibility, boolean isStatic, boolean isFinal) {
+        return of(visibility.modifier | (isStatic ? Modifier.STATIC : 0) | (isFinal ? Modifier.FINAL : 0));
+    }
+
+    public static AccessSpecifierBuilder builder() {
+        return new AccessSpecifierBuilder();
+    }
+
+    public AccessSpecifierBuilder toBuilder() {
+        return new AccessSpecifierBuilder(visibility, modifiers & FLAG_MASK);
+    }
+
+    public int getModifiers() {
+        return modifiers;
+    }
+
+    /**
+     * @return The modifiers in source order, followed by a space, or an empty string if there are none.
+     */
     @Override
     public String toString() {
-        return visibility == Visibility.PACKAGE ? "" : visibility.prefix + " " + (isStatic ? "static " : "") + (isFinal ? "final " : "");
+        return prefix;
+    }
+
+    public static final class AccessSpecifierBuilder {
+        private Visibility visibility = Visibility.PRIVATE;
+        private int flags;
+
+        private AccessSpecifierBuilder() {}
+
+        private AccessSpecifierBuilder(Visibility visibility, int flags) {
+            this.visibility = visibility;
+            this.flags = flags;
+        }
+
+        public AccessSpecifierBuilder visibility(@NonNull Visibility visibility) {
+            this.visibility = visibility;
+            return this;
+        }
+
+        public AccessSpecifierBuilder isStatic(boolean isStatic) {
+            return flag(Modifier.STATIC, isStatic);
+        }
+
+        public AccessSpecifierBuilder isFinal(boolean isFinal) {
+            return flag(Modifier.FINAL, isFinal);
+        }
+
+        public AccessSpecifierBuilder isAbstract(boolean isAbstract) {
+            return flag(Modifier.ABSTRACT, isAbstract);
+        }
+
+        public AccessSpecifierBuilder isSynchronized(boolean isSynchronized) {
+            return flag(Modifier.SYNCHRONIZED, isSynchronized);
+        }
+
+        public AccessSpecifierBuilder isVolatile(boolean isVolatile) {
+            return flag(Modifier.VOLATILE, isVolatile);
+        }
+
+        public AccessSpecifierBuilder isTransient(boolean isTransient) {
+            return flag(Modifier.TRANSIENT, isTransient);
+        }
+
+        public AccessSpecifierBuilder isNative(boolean isNative) {
+            return flag(Modifier.NATIVE, isNative);
+        }
+
+        private AccessSpecifierBuilder flag(int flag, boolean set) {
+            flags = set ? flags | flag : flags & ~flag;
+            return this;
+        }
+
+        public AccessSpecifier build() {
+            return TABLE[visibility.modifier | flags];
+        }
     }
 }
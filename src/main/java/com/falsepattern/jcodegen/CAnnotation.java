@@ -4,21 +4,28 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NonNull;
 
-import java.util.Collections;
+import java.io.IOException;
 import java.util.Set;
+import java.util.function.Consumer;
 
 @Builder
-public class CAnnotation implements TypeCarrier{
+public class CAnnotation implements TypeCarrier, Renderable {
     @NonNull
     @Getter
     public final CType type;
     @Builder.Default
     @Getter
-    public final CImmutableList<CAnnotationArgument> params = new CImmutableList<>(Collections.emptySet());
+    public final CImmutableList<CAnnotationArgument> params = CImmutableList.empty();
+    private final RenderCache renderCache = new RenderCache();
 
     @Override
     public Set<CType> getTypes() {
-        return Collections.singleton(type);
+        return type.asSet();
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        action.accept(type);
     }
 
     @Override
@@ -36,8 +43,27 @@ public class CAnnotation implements TypeCarrier{
         return type.hashCode();
     }
 
+    @Override
+    public void renderTo(Appendable out) throws IOException {
+        renderTo(out, TypeNameResolver.SIMPLE);
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        out.append('@').append(names.nameOf(type));
+        if (!params.getParameters().isEmpty()) {
+            out.append('(');
+            params.renderTo(out, names);
+            out.append(')');
+        }
+    }
+
+    String renderCached() {
+        return renderCache.get(null, this);
+    }
+
     @Override
     public String toString() {
-        return "@" + type.getSimpleName() + (params.getTypes().size() > 0 ? "(" + params + ")" : "");
+        return Renderable.render(this);
     }
 }
@@ -4,11 +4,12 @@ import lombok.Builder;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
 
+import java.io.IOException;
 import java.util.Objects;
 
 @Builder
 @RequiredArgsConstructor
-public class CAnnotationArgument {
+public class CAnnotationArgument implements Renderable {
     private final String name;
     private final String arg;
 
@@ -30,9 +31,14 @@ public class CAnnotationArgument {
         return Objects.hash(name, arg);
     }
 
+    @Override
+    public void renderTo(Appendable out) throws IOException {
+        out.append(name).append(" = ").append(arg);
+    }
+
     @Override
     public String toString() {
-        return name + " = " + arg;
+        return Renderable.render(this);
     }
 
 }
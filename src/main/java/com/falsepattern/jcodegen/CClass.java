@@ -21,60 +21,256 @@
  */
 package com.falsepattern.jcodegen;
 
-import com.falsepattern.jcodegen.util.StringUtil;
+import com.falsepattern.jcodegen.metrics.CountingAppendable;
+import com.falsepattern.jcodegen.metrics.GenerationListener;
+import com.falsepattern.jcodegen.metrics.GenerationListener.Phase;
+import com.falsepattern.jcodegen.metrics.GenerationMetrics;
+import com.falsepattern.jcodegen.util.IndentingAppendable;
 import lombok.*;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
-@Builder
-@RequiredArgsConstructor
-public class CClass {
+public class CClass implements Renderable {
     @Getter
     private final String pkg;
-    @Builder.Default
     @Getter
-    private final AccessSpecifier accessSpecifier = AccessSpecifier.builder().build();
+    private final AccessSpecifier accessSpecifier;
     @Getter
     private final String name;
-    @Builder.Default
     @Getter
-    private final CType superclass = CType.OBJECT;
+    private final CType superclass;
+    /**
+     * Memoize the rendered output of the class and its members, so that re-rendering after a change only renders the
+     * changed parts again.
+     */
+    @Getter
+    private final boolean cacheRendering;
+    /**
+     * Replace added methods and constructors with their canonical instances from {@link MemberInterner}, so that
+     * identical members are shared between classes.
+     */
+    @Getter
+    private final boolean internMembers;
+    private final RenderCache renderCache = new RenderCache();
+    private final ImportIndex imports;
+    private final List<CType> implicitImports = new ArrayList<>();
     private final Set<CAnnotation> annotations = new HashSet<>();
-    private final Set<CType> imports = new HashSet<>();
     private final List<CField> fields = new ArrayList<>();
     private final List<CConstructor> constructors = new ArrayList<>();
     private final List<CMethod> methods = new ArrayList<>();
 
+    /**
+     * @param accessSpecifier Defaults to {@link AccessSpecifier.Visibility#PRIVATE} if null.
+     * @param superclass Defaults to {@link CType#OBJECT} if null.
+     */
+    public CClass(String pkg, AccessSpecifier accessSpecifier, String name, CType superclass) {
+        this(pkg, accessSpecifier, name, superclass, false, false);
+    }
+
+    /**
+     * Like {@link #CClass(String, AccessSpecifier, String, CType)}, with the {@link #isCacheRendering()} and
+     * {@link #isInternMembers()} flags.
+     */
+    @Builder
+    public CClass(String pkg, AccessSpecifier accessSpecifier, String name, CType superclass, boolean cacheRendering, boolean internMembers) {
+        this.pkg = pkg;
+        this.accessSpecifier = accessSpecifier == null ? AccessSpecifier.builder().build() : accessSpecifier;
+        this.name = name;
+        this.superclass = superclass == null ? CType.OBJECT : superclass;
+        this.cacheRendering = cacheRendering;
+        this.internMembers = internMembers;
+        this.imports = new ImportIndex(pkg, getCType());
+        if (!this.superclass.equals(CType.OBJECT)) {
+            imports.add(this.superclass);
+        }
+    }
+
+    /**
+     * Mirrors the non-private fields, constructors and methods of a class, for example to derive subclass constructors
+     * through {@link #superConstructors} or to build delegating wrappers. Types are erased, since a {@link CClass} does
+     * not declare type parameters. Void methods have empty code, and other methods throw an
+     * {@link UnsupportedOperationException}, so every mirrored method has a valid body; abstract and native methods are
+     * mirrored as plain methods for the same reason. Member classes are mirrored under their simple name.
+     * <p>
+     * Interfaces, annotations and enums have no {@link CClass} equivalent and are rejected.
+     * <p>
+     * The members of each class are reflected once and cached, so mirroring the same class again is cheap.
+     *
+     * @throws IllegalArgumentException If the class is an interface, annotation, enum, array, primitive, anonymous or
+     *                                  local class.
+     */
+    public static CClass fromClass(@NonNull Class<?> clazz) {
+        return ClassMirror.mirror(clazz);
+    }
+
+    /**
+     * Mirrors every class of a package that {@code loader} can list and load, in parallel on the common pool. See
+     * {@link #fromClass}. Subpackages and classes that cannot be mirrored are not included.
+     *
+     * @return The mirrors, sorted by binary name.
+     */
+    public static List<CClass> fromPackage(@NonNull String pkg, @NonNull ClassLoader loader) throws IOException {
+        return fromPackage(pkg, loader, ForkJoinPool.commonPool());
+    }
+
+    public static List<CClass> fromPackage(@NonNull String pkg, @NonNull ClassLoader loader, @NonNull Executor executor) throws IOException {
+        return ClassMirror.mirrorPackage(pkg, loader, executor);
+    }
+
     public CType getCType() {
         return CType.of(pkg + "." + name, 0);
     }
 
+    /**
+     * @return The types referenced by the class and its members, except primitives and the class itself.
+     */
+    public Set<CType> getImports() {
+        return imports.getTypes();
+    }
+
+    /**
+     * @return The types that get an import statement, sorted by name. A type whose simple name is already owned by
+     *         another type is rendered fully qualified and not included.
+     */
+    public Collection<CType> getImportedTypes() {
+        return imports.getImports();
+    }
+
+    /**
+     * @return The types passed to {@link #importImplicitly}, in call order.
+     */
+    public List<CType> getImplicitImports() {
+        return Collections.unmodifiableList(implicitImports);
+    }
+
+    public Set<CAnnotation> getAnnotations() {
+        return Collections.unmodifiableSet(annotations);
+    }
+
+    public List<CField> getFields() {
+        return Collections.unmodifiableList(fields);
+    }
+
+    public List<CConstructor> getConstructors() {
+        return Collections.unmodifiableList(constructors);
+    }
+
+    public List<CMethod> getMethods() {
+        return Collections.unmodifiableList(methods);
+    }
+
     public void importImplicitly(CType type) {
+        implicitImports.add(type);
         imports.add(type);
+        renderCache.invalidate();
     }
 
     public void addField(CField field) {
-        imports.add(field.type);
+        register(field);
         fields.add(field);
+        renderCache.invalidate();
     }
 
     public void addConstructor(CConstructor constructor) {
-        imports.addAll(constructor.getTypes());
+        if (internMembers) {
+            constructor = MemberInterner.intern(constructor);
+        }
+        register(constructor);
         constructors.add(constructor);
+        renderCache.invalidate();
     }
 
     public void addMethod(CMethod method) {
-        imports.addAll(method.getTypes());
+        if (internMembers) {
+            method = MemberInterner.intern(method);
+        }
+        register(method);
         methods.add(method);
+        renderCache.invalidate();
     }
 
     public void addAnnotation(CAnnotation annotation) {
-        imports.addAll(annotation.getTypes());
-        annotations.add(annotation);
+        if (annotations.add(annotation)) {
+            register(annotation);
+            renderCache.invalidate();
+        }
+    }
+
+    public boolean removeField(CField field) {
+        return remove(fields, field);
+    }
+
+    public boolean removeConstructor(CConstructor constructor) {
+        return remove(constructors, constructor);
+    }
+
+    public boolean removeMethod(CMethod method) {
+        return remove(methods, method);
+    }
+
+    /**
+     * Replaces a method in place, keeping the declaration order.
+     *
+     * @return False if the class has no method equal to {@code method}.
+     */
+    public boolean replaceMethod(CMethod method, CMethod replacement) {
+        val index = methods.indexOf(method);
+        if (index < 0) return false;
+        if (internMembers) {
+            replacement = MemberInterner.intern(replacement);
+        }
+        register(replacement);
+        release(methods.set(index, replacement));
+        renderCache.invalidate();
+        return true;
+    }
+
+    public boolean removeAnnotation(CAnnotation annotation) {
+        for (Iterator<CAnnotation> iterator = annotations.iterator(); iterator.hasNext(); ) {
+            val existing = iterator.next();
+            if (existing.equals(annotation)) {
+                iterator.remove();
+                release(existing);
+                renderCache.invalidate();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private <T extends TypeCarrier> boolean remove(List<T> members, T member) {
+        val index = members.indexOf(member);
+        if (index < 0) return false;
+        release(members.remove(index));
+        renderCache.invalidate();
+        return true;
+    }
+
+    private void register(TypeCarrier member) {
+        val listener = GenerationMetrics.getListener();
+        if (listener != null) listener.phaseStarted(Phase.IMPORT_INDEX);
+        member.forEachType(imports::add);
+        if (listener != null) listener.phaseEnded(Phase.IMPORT_INDEX, -1);
+    }
+
+    private void release(TypeCarrier member) {
+        val listener = GenerationMetrics.getListener();
+        if (listener != null) listener.phaseStarted(Phase.IMPORT_INDEX);
+        member.forEachType(imports::remove);
+        if (listener != null) listener.phaseEnded(Phase.IMPORT_INDEX, -1);
     }
 
     public void superConstructors(CClass other) {
@@ -89,35 +285,152 @@ public class CClass {
         });
     }
 
+    @Override
+    public void renderTo(Appendable out) throws IOException {
+        val listener = GenerationMetrics.getListener();
+        if (listener == null) {
+            renderUnmeasured(out);
+            return;
+        }
+        // Wrapping an indenting appendable would hide its indentation from the members
+        val counter = out instanceof IndentingAppendable ? null : new CountingAppendable(out);
+        listener.phaseStarted(Phase.RENDER);
+        renderUnmeasured(counter == null ? out : counter);
+        listener.phaseEnded(Phase.RENDER, counter == null ? -1 : counter.getCount());
+    }
+
+    private void renderUnmeasured(Appendable out) throws IOException {
+        if (cacheRendering) {
+            out.append(renderCache.get(null, this::renderSource));
+        } else {
+            renderSource(out);
+        }
+    }
+
+    private void renderSource(Appendable out) throws IOException {
+        val listener = GenerationMetrics.getListener();
+        val counter = listener == null || out instanceof IndentingAppendable ? null : new CountingAppendable(out);
+        val w = IndentingAppendable.of(counter == null ? out : counter);
+        w.append("package ").append(pkg).append(";\n\n");
+        long mark = begin(listener, Phase.IMPORTS, counter);
+        val importTypes = imports.getImports();
+        for (val type: importTypes) {
+            w.append(type.asImport());
+        }
+        if (!importTypes.isEmpty()) {
+            w.append('\n');
+        }
+        end(listener, Phase.IMPORTS, counter, mark);
+        mark = begin(listener, Phase.DECLARATION, counter);
+        renderDeclaration(w, imports);
+        end(listener, Phase.DECLARATION, counter, mark);
+        w.indent(4);
+        mark = begin(listener, Phase.FIELDS, counter);
+        for (val field: fields) {
+            if (cacheRendering && imports.isSimple(field)) {
+                w.append(field.renderCached());
+            } else {
+                field.renderTo(w, imports);
+            }
+            w.append('\n');
+        }
+        if (!fields.isEmpty() && (!constructors.isEmpty() || !methods.isEmpty())) {
+            w.append('\n');
+        }
+        end(listener, Phase.FIELDS, counter, mark);
+        mark = begin(listener, Phase.CONSTRUCTORS, counter);
+        for (val constructor: constructors) {
+            if (cacheRendering && imports.isSimple(constructor)) {
+                w.append(constructor.renderCached(name));
+            } else {
+                constructor.renderTo(w, name, imports);
+            }
+            w.append('\n');
+        }
+        if (!constructors.isEmpty() && !methods.isEmpty()) {
+            w.append('\n');
+        }
+        end(listener, Phase.CONSTRUCTORS, counter, mark);
+        mark = begin(listener, Phase.METHODS, counter);
+        for (val method: methods) {
+            if (cacheRendering && imports.isSimple(method)) {
+                w.append(method.renderCached());
+            } else {
+                method.renderTo(w, imports);
+            }
+            w.append('\n');
+        }
+        if (!methods.isEmpty()) {
+            w.append('\n');
+        }
+        end(listener, Phase.METHODS, counter, mark);
+        w.outdent(4);
+        w.append('}');
+    }
+
+    /**
+     * @return The character count at the start of the phase, or -1 if the output is not counted.
+     */
+    private static long begin(GenerationListener listener, Phase phase, CountingAppendable counter) {
+        if (listener == null) return -1;
+        listener.phaseStarted(phase);
+        return counter == null ? -1 : counter.getCount();
+    }
+
+    private static void end(GenerationListener listener, Phase phase, CountingAppendable counter, long mark) {
+        if (listener == null) return;
+        listener.phaseEnded(phase, counter == null ? -1 : counter.getCount() - mark);
+    }
+
+    /**
+     * Renders the annotations and the class declaration up to and including the opening brace.
+     */
+    void renderDeclaration(Appendable out, ImportIndex names) throws IOException {
+        for (val annotation: annotations) {
+            if (cacheRendering && names.isSimple(annotation)) {
+                out.append(annotation.renderCached());
+            } else {
+                annotation.renderTo(out, names);
+            }
+            out.append('\n');
+        }
+        out.append(accessSpecifier.toString()).append("class ").append(name);
+        if (!superclass.equals(CType.OBJECT)) {
+            superclass.renderTo(out.append(" extends "), names);
+        }
+        out.append(" {\n");
+    }
+
+    /**
+     * Starts writing this class to the given writer. The members already added to this class are written right away,
+     * and further members can be pushed to the returned writer one at a time without being retained.
+     * <p>
+     * Since the import block is written first, only the types already registered with this class (through its
+     * members, its superclass, its annotations or {@link #importImplicitly}) are imported. Any other type is written
+     * fully qualified.
+     */
+    public StreamingClassWriter stream(Writer out) throws IOException {
+        return StreamingClassWriter.open(this, out);
+    }
+
+    /**
+     * Like {@link #stream(Writer)}, but the import block is written when the returned writer is closed, so the types
+     * of streamed members get imported too. A region of the given size is reserved for the import block; if it turns
+     * out too small, the already written content is moved back in fixed size chunks to make room, so the channel has
+     * to be readable as well as writable.
+     *
+     * @throws java.nio.channels.NonReadableChannelException If the channel is not readable.
+     */
+    public StreamingClassWriter stream(SeekableByteChannel out, Charset charset, int reservedImportBytes) throws IOException {
+        return StreamingClassWriter.open(this, out, charset, reservedImportBytes);
+    }
+
+    ImportIndex importIndex() {
+        return imports;
+    }
+
     @Override
     public String toString() {
-        var fieldString = fields.stream().map(CField::toString).collect(Collectors.joining("\n"));
-        var constructorString = constructors.stream().map(constructor -> constructor.toString(name)).collect(Collectors.joining("\n"));
-        val methodString = methods.stream().map(CMethod::toString).collect(Collectors.joining("\n"));
-        val annotationString = annotations.stream().map(CAnnotation::toString).collect(Collectors.joining("\n"));
-        return String.format(
-               "package %s;\n" +
-               "\n" +
-               "%s\n" +
-               "%s\n" +
-               "%s\n" +
-               "%sclass %s%s {\n" +
-               "%s%s" +
-               "%s%s" +
-               "%s%s" +
-               "}",
-               pkg,
-                imports.stream().filter((cType -> !cType.isPrimitive())).filter(imp -> !imp.getName().equals(pkg + "." + imp.getSimpleName())).map(CType::asImport).sorted().collect(Collectors.joining()),
-                superclass != null && !superclass.equals(CType.OBJECT) ? superclass.getName().equals(pkg + "." + superclass.getSimpleName()) ? "" : "import " + superclass.getName() + ";\n" : "",
-                annotationString,
-                accessSpecifier,
-                name,
-                superclass != null && !superclass.equals(CType.OBJECT) ? " extends " + superclass.getSimpleName() : "",
-                StringUtil.indent(fieldString, 4),
-                fieldString.length() != 0 && (constructorString.length() != 0 || methodString.length() != 0) ? "\n" : "",
-                StringUtil.indent(constructorString, 4),
-                constructorString.length() != 0 && methodString.length() != 0 ? "\n" : "",
-                StringUtil.indent(methodString, 4),
-                methodString.length() != 0 ? "\n" : "");
+        return Renderable.render(this);
     }
 }
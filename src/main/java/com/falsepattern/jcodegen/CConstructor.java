@@ -21,12 +21,18 @@
  */
 package com.falsepattern.jcodegen;
 
-import com.falsepattern.jcodegen.util.StringUtil;
+import com.falsepattern.jcodegen.code.CBlock;
+import com.falsepattern.jcodegen.util.ArraySet;
+import com.falsepattern.jcodegen.util.IndentingAppendable;
+import com.falsepattern.jcodegen.util.Lazy;
 import lombok.Builder;
 import lombok.RequiredArgsConstructor;
+import lombok.val;
 
-import java.util.Collections;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Set;
+import java.util.function.Consumer;
 
 @Builder
 @RequiredArgsConstructor
@@ -34,21 +40,64 @@ public class CConstructor implements TypeCarrier {
     @Builder.Default
     public final AccessSpecifier accessSpecifier = AccessSpecifier.builder().build();
     @Builder.Default
-    public final CImmutableList<CParameter> paramList = new CImmutableList<>(Collections.emptySet());
+    public final CImmutableList<CParameter> paramList = CImmutableList.empty();
     @Builder.Default
     public final String code = "";
+    /**
+     * Structured alternative to {@link #code}. When set, it is rendered instead of the code string, and its types are
+     * imported automatically.
+     */
+    public final CBlock body;
+    private final RenderCache renderCache = new RenderCache();
+    private final Lazy<Set<CType>> types = new Lazy<>();
+
+    public CConstructor(AccessSpecifier accessSpecifier, CImmutableList<CParameter> paramList, String code) {
+        this(accessSpecifier, paramList, code, null);
+    }
+
+    public void renderTo(Appendable out, String className) throws IOException {
+        renderTo(out, className, TypeNameResolver.SIMPLE);
+    }
+
+    public void renderTo(Appendable out, String className, TypeNameResolver names) throws IOException {
+        val w = IndentingAppendable.of(out);
+        w.append(accessSpecifier.toString()).append(className).append('(');
+        paramList.renderTo(w, names);
+        w.append("){\n");
+        w.indent(4);
+        if (body != null) {
+            body.renderStatements(w, names);
+        } else {
+            w.appendBlock(code);
+        }
+        w.outdent(4);
+        w.append('}');
+    }
+
+    String renderCached(String className) {
+        return renderCache.get(className, (out) -> renderTo(out, className));
+    }
 
     public String toString(String className) {
-        return String.format("%s%s(%s){\n%s}",
-                accessSpecifier,
-                className,
-                paramList,
-                StringUtil.indent(code, 4));
+        return Renderable.render(out -> renderTo(out, className));
     }
 
     @Override
     public Set<CType> getTypes() {
-        return paramList.getTypes();
+        if (body == null) {
+            return paramList.getTypes();
+        }
+        return types.get(() -> {
+            val result = new ArrayList<CType>();
+            forEachType(result::add);
+            return ArraySet.copyOf(result);
+        });
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        paramList.forEachType(action);
+        if (body != null) body.forEachType(action);
     }
 
     @Override
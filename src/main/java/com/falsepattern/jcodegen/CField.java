@@ -26,9 +26,13 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
 
+import java.io.IOException;
+import java.util.Set;
+import java.util.function.Consumer;
+
 @Builder
 @RequiredArgsConstructor
-public class CField {
+public class CField implements TypeCarrier, Renderable {
     @Builder.Default
     @NonNull
     public final AccessSpecifier accessSpecifier = AccessSpecifier.builder().build();
@@ -39,9 +43,39 @@ public class CField {
     @Builder.Default
     @NonNull
     public final String initializer = "";
+    private final RenderCache renderCache = new RenderCache();
+    @Override
+    public Set<CType> getTypes() {
+        return type.asSet();
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        action.accept(type);
+    }
+
+    @Override
+    public void renderTo(Appendable out) throws IOException {
+        renderTo(out, TypeNameResolver.SIMPLE);
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        type.renderTo(out.append(accessSpecifier.toString()), names);
+        out.append(' ').append(name);
+        if (initializer.length() > 0) {
+            out.append(" = ").append(initializer);
+        }
+        out.append(';');
+    }
+
+    String renderCached() {
+        return renderCache.get(null, this);
+    }
+
     @Override
     public String toString() {
-        return String.format("%s%s %s%s;", accessSpecifier, type.getSimpleName(), name, initializer.length() > 0 ? " = " + initializer : "");
+        return Renderable.render(this);
     }
 
     public CType type(){return type;}
@@ -21,30 +21,150 @@
  */
 package com.falsepattern.jcodegen;
 
+import com.falsepattern.jcodegen.util.ArraySet;
+import com.falsepattern.jcodegen.util.Lazy;
 import lombok.val;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
 
-public class CImmutableList<T> implements TypeCarrier {
-    private final List<T> parameters = new ArrayList<>();
+/**
+ * Persistent list. Lists derived through {@link #append} and {@link #prepend} share one backing array with the list
+ * they were derived from. Each list covers a window of the array, and the first list to grow its window into an unused
+ * slot claims it; any other list growing into the same slot copies instead. This makes both operations amortized O(1)
+ * while never mutating an element visible to an existing list.
+ */
+public class CImmutableList<T> implements TypeCarrier, Renderable {
+    private static final CImmutableList<?> EMPTY = new CImmutableList<>(new Buffer(new Object[0], 0, 0), 0, 0);
+    private static final int MIN_GROWTH = 4;
+
+    private final Buffer buffer;
+    private final int offset;
+    private final int size;
+    private final List<T> view = new View();
+    private final Lazy<Set<CType>> types = new Lazy<>();
+    private int hash;
 
     public CImmutableList(Collection<T> params) {
-        parameters.addAll(params);
+        this(params.toArray());
+    }
+
+    private CImmutableList(Object[] elements) {
+        this(new Buffer(elements, 0, elements.length), 0, elements.length);
     }
 
+    private CImmutableList(Buffer buffer, int offset, int size) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> CImmutableList<T> empty() {
+        return (CImmutableList<T>) EMPTY;
+    }
+
+    /**
+     * @return An unmodifiable view of the elements. No copy is made.
+     */
     public List<T> getParameters() {
-        return Collections.unmodifiableList(parameters);
+        return view;
+    }
+
+    public CImmutableList<T> append(T element) {
+        val end = offset + size;
+        if (end < buffer.elements.length && buffer.claimTail(end)) {
+            buffer.elements[end] = element;
+            return new CImmutableList<>(buffer, offset, size + 1);
+        }
+        val grown = new Object[size + Math.max(MIN_GROWTH, size)];
+        System.arraycopy(buffer.elements, offset, grown, 0, size);
+        grown[size] = element;
+        return new CImmutableList<>(new Buffer(grown, 0, size + 1), 0, size + 1);
+    }
+
+    public CImmutableList<T> prepend(T element) {
+        if (offset > 0 && buffer.claimHead(offset)) {
+            buffer.elements[offset - 1] = element;
+            return new CImmutableList<>(buffer, offset - 1, size + 1);
+        }
+        val room = Math.max(MIN_GROWTH, size);
+        val grown = new Object[room + size];
+        System.arraycopy(buffer.elements, offset, grown, room, size);
+        grown[room - 1] = element;
+        return new CImmutableList<>(new Buffer(grown, room - 1, room + size), room - 1, size + 1);
     }
 
     @Override
     public Set<CType> getTypes() {
-        return parameters.stream().filter((x) -> x instanceof TypeCarrier).flatMap((x) -> ((TypeCarrier)x).getTypes().stream()).collect(Collectors.toSet());
+        return types.get(() -> {
+            val result = new ArrayList<CType>();
+            forEachType(result::add);
+            return ArraySet.copyOf(result);
+        });
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        for (int i = 0; i < size; i++) {
+            val param = buffer.elements[offset + i];
+            if (param instanceof TypeCarrier) {
+                ((TypeCarrier) param).forEachType(action);
+            }
+        }
+    }
+
+    @Override
+    public void renderTo(Appendable out) throws IOException {
+        renderTo(out, TypeNameResolver.SIMPLE);
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        for (int i = 0; i < size; i++) {
+            if (i > 0) out.append(", ");
+            val param = buffer.elements[offset + i];
+            if (param instanceof Renderable) {
+                ((Renderable) param).renderTo(out, names);
+            } else {
+                out.append(String.valueOf(param));
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CImmutableList)) return false;
+
+        CImmutableList<?> that = (CImmutableList<?>) o;
+
+        if (size != that.size) return false;
+        if (buffer == that.buffer && offset == that.offset) return true;
+        for (int i = 0; i < size; i++) {
+            if (!Objects.equals(buffer.elements[offset + i], that.buffer.elements[that.offset + i])) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hash;
+        if (result == 0) {
+            result = 1;
+            for (int i = 0; i < size; i++) {
+                result = 31 * result + Objects.hashCode(buffer.elements[offset + i]);
+            }
+            hash = result;
+        }
+        return result;
     }
 
     @Override
     public String toString() {
-        return parameters.stream().map(Object::toString).collect(Collectors.joining(", "));
+        return Renderable.render(this);
     }
 
     public static <T> CImmutableListBuilder<T> builder() {
@@ -53,14 +173,57 @@ public class CImmutableList<T> implements TypeCarrier {
 
     public static class CImmutableListBuilder<T> {
         private CImmutableListBuilder(){}
-        private final List<T> params = new ArrayList<>();
+        private CImmutableList<T> params = empty();
         public CImmutableListBuilder<T> addParam(T param) {
-            params.add(param);
+            params = params.append(param);
             return this;
         }
 
         public CImmutableList<T> build() {
-            return new CImmutableList<>(params);
+            return params;
+        }
+    }
+
+    private class View extends AbstractList<T> implements RandomAccess {
+        @SuppressWarnings("unchecked")
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            return (T) buffer.elements[offset + index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private static final class Buffer {
+        private static final AtomicIntegerFieldUpdater<Buffer> HEAD = AtomicIntegerFieldUpdater.newUpdater(Buffer.class, "head");
+        private static final AtomicIntegerFieldUpdater<Buffer> TAIL = AtomicIntegerFieldUpdater.newUpdater(Buffer.class, "tail");
+
+        private final Object[] elements;
+        /**
+         * Lowest claimed index.
+         */
+        private volatile int head;
+        /**
+         * One past the highest claimed index.
+         */
+        private volatile int tail;
+
+        private Buffer(Object[] elements, int head, int tail) {
+            this.elements = elements;
+            this.head = head;
+            this.tail = tail;
+        }
+
+        private boolean claimTail(int end) {
+            return TAIL.compareAndSet(this, end, end + 1);
+        }
+
+        private boolean claimHead(int start) {
+            return HEAD.compareAndSet(this, start, start - 1);
         }
     }
 }
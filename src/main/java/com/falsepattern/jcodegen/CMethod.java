@@ -21,43 +21,87 @@
  */
 package com.falsepattern.jcodegen;
 
-import com.falsepattern.jcodegen.util.StringUtil;
+import com.falsepattern.jcodegen.code.CBlock;
+import com.falsepattern.jcodegen.util.ArraySet;
+import com.falsepattern.jcodegen.util.IndentingAppendable;
+import com.falsepattern.jcodegen.util.Lazy;
 import lombok.Builder;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
 
-import java.util.Collections;
-import java.util.HashSet;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Set;
+import java.util.function.Consumer;
 
 @Builder
 @RequiredArgsConstructor
-public class CMethod implements TypeCarrier {
+public class CMethod implements TypeCarrier, Renderable {
     @Builder.Default
     public final AccessSpecifier accessSpecifier = AccessSpecifier.builder().build();
     @Builder.Default
     public final CType returnType = CType.VOID;
     public final String name;
     @Builder.Default
-    public final CImmutableList<CParameter> paramList = new CImmutableList<>(Collections.emptySet());
+    public final CImmutableList<CParameter> paramList = CImmutableList.empty();
     public final String code;
+    /**
+     * Structured alternative to {@link #code}. When set, it is rendered instead of the code string, and its types are
+     * imported automatically.
+     */
+    public final CBlock body;
+    private final RenderCache renderCache = new RenderCache();
+    private final Lazy<Set<CType>> types = new Lazy<>();
+
+    public CMethod(AccessSpecifier accessSpecifier, CType returnType, String name, CImmutableList<CParameter> paramList, String code) {
+        this(accessSpecifier, returnType, name, paramList, code, null);
+    }
+
+    @Override
+    public void renderTo(Appendable out) throws IOException {
+        renderTo(out, TypeNameResolver.SIMPLE);
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        val w = IndentingAppendable.of(out);
+        returnType.renderTo(w.append(accessSpecifier.toString()), names);
+        w.append(' ').append(name).append('(');
+        paramList.renderTo(w, names);
+        w.append("){\n");
+        w.indent(4);
+        if (body != null) {
+            body.renderStatements(w, names);
+        } else {
+            w.appendBlock(code);
+        }
+        w.outdent(4);
+        w.append('}');
+    }
+
+    String renderCached() {
+        return renderCache.get(null, this);
+    }
 
     @Override
     public String toString() {
-        return String.format("%s%s %s(%s){\n%s}",
-                accessSpecifier,
-                returnType.getSimpleName(),
-                name,
-                paramList,
-                StringUtil.indent(code, 4));
+        return Renderable.render(this);
     }
 
     @Override
     public Set<CType> getTypes() {
-        val result = new HashSet<CType>();
-        result.add(returnType);
-        result.addAll(paramList.getTypes());
-        return result;
+        return types.get(() -> {
+            val result = new ArrayList<CType>();
+            forEachType(result::add);
+            return ArraySet.copyOf(result);
+        });
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        action.accept(returnType);
+        paramList.forEachType(action);
+        if (body != null) body.forEachType(action);
     }
 
     @Override
@@ -24,13 +24,14 @@ package com.falsepattern.jcodegen;
 import lombok.Builder;
 import lombok.RequiredArgsConstructor;
 
-import java.util.Collections;
+import java.io.IOException;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
 
 @Builder
 @RequiredArgsConstructor
-public final class CParameter implements TypeCarrier{
+public final class CParameter implements TypeCarrier, Renderable {
     private final CType type;
     private final String name;
 
@@ -56,13 +57,29 @@ public final class CParameter implements TypeCarrier{
         return result;
     }
 
+    @Override
+    public void renderTo(Appendable out) throws IOException {
+        renderTo(out, TypeNameResolver.SIMPLE);
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        type.renderTo(out, names);
+        out.append(' ').append(name);
+    }
+
     @Override
     public String toString() {
-        return type.getSimpleName() + " " + name;
+        return Renderable.render(this);
     }
 
     @Override
     public Set<CType> getTypes() {
-        return Collections.singleton(type);
+        return type.asSet();
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        action.accept(type);
     }
 }
@@ -21,19 +21,44 @@
  */
 package com.falsepattern.jcodegen;
 
+import com.falsepattern.jcodegen.metrics.GenerationMetrics;
 import lombok.val;
 
-import java.lang.reflect.Array;
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
 
 public final class CType {
-    private static final Map<Class<?>, CType> classMap = new HashMap<>();
-    private static final Map<String, Map<Integer, CType>> nameArrayMap = new HashMap<>();
+    private static final CType[] NO_ARGUMENTS = new CType[0];
+    private static final ConcurrentMap<Key, CType> interned = new ConcurrentHashMap<>();
+    private static final ClassValue<CType> classCache = new ClassValue<CType>() {
+        @Override
+        protected CType computeValue(Class<?> clazz) {
+            val base = getBaseTypeOfNDimensionalArray(clazz);
+            if (GenerationMetrics.getListener() != null) {
+                classLookupReported.get()[0] = true;
+            }
+            return intern(base.getName().replace('$', '.'), base.isPrimitive(), countArrayDimensions(clazz));
+        }
+    };
+    /**
+     * Set when a {@link Class} lookup fell through to {@link #intern}, which reports the lookup itself. Only touched
+     * while a listener is installed.
+     */
+    private static final ThreadLocal<boolean[]> classLookupReported = ThreadLocal.withInitial(() -> new boolean[1]);
 
     public static final CType VOID = CType.of(void.class);
+    public static final CType BOOLEAN = CType.of(boolean.class);
     public static final CType BYTE = CType.of(byte.class);
     public static final CType CHAR = CType.of(char.class);
     public static final CType SHORT = CType.of(short.class);
@@ -44,66 +69,214 @@ public final class CType {
     public static final CType OBJECT = CType.of(Object.class);
 
     public static CType of(Class<?> clazz) {
-        if (classMap.containsKey(clazz)) {
-            return classMap.get(clazz);
-        }
-        val name = getBaseTypeOfNDimensionalArray(clazz).getName().replace('$', '.');
-        val prim = getBaseTypeOfNDimensionalArray(clazz).isPrimitive();
-        val arr = countArrayDimensions(clazz);
-        val type = new CType(name, prim, arr);
-        classMap.put(clazz, type);
-        nameArrayMap.computeIfAbsent(name, (ignored) -> new HashMap<>()).put(arr, type);
+        val listener = GenerationMetrics.getListener();
+        if (listener == null) {
+            return classCache.get(clazz);
+        }
+        val reported = classLookupReported.get();
+        reported[0] = false;
+        val type = classCache.get(clazz);
+        if (!reported[0]) {
+            listener.typeLookup(type, true);
+        }
         return type;
     }
 
     public static CType of(String name, int arrayDimensions) {
-        if (nameArrayMap.containsKey(name)) {
-            val arrayMap = nameArrayMap.get(name);
-            if (arrayMap.containsKey(arrayDimensions)) {
-                return arrayMap.get(arrayDimensions);
-            }
-        }
-        val type = new CType(name, false, arrayDimensions);
-        nameArrayMap.computeIfAbsent(name, (ignored) -> new HashMap<>()).put(arrayDimensions, type);
-        return type;
+        return intern(name, isPrimitiveName(name), arrayDimensions);
     }
 
     public static CType of(String name) {
         return of(name, 0);
     }
 
+    /**
+     * @return The type with the given type arguments, for example {@code List<String>} for
+     *         {@code CType.of(List.class).withTypeArguments(CType.of(String.class))}.
+     * @throws IllegalArgumentException If this is not a raw non-array class type, or an argument is primitive.
+     */
+    public CType withTypeArguments(CType... typeArguments) {
+        if (kind != Kind.CLASS || primitive || arrayDimensions != 0 || this.typeArguments.length != 0) throw new IllegalArgumentException("Only raw class types can be parameterized, got " + fullName);
+        if (typeArguments.length == 0) return this;
+        val args = typeArguments.clone();
+        for (val arg: args) {
+            if (arg == null) throw new NullPointerException("Type argument of " + fullName);
+            if (arg.primitive && arg.arrayDimensions == 0) throw new IllegalArgumentException("Primitive type argument " + arg.fullName + " for " + fullName);
+        }
+        return intern(Kind.CLASS, name, false, 0, args, null);
+    }
+
+    /**
+     * @param name The name of the variable, for example {@code T}.
+     */
+    public static CType typeVariable(String name) {
+        if (name.isEmpty() || name.indexOf('.') >= 0 || name.indexOf('<') >= 0) throw new IllegalArgumentException("Invalid type variable name: " + name);
+        return intern(Kind.TYPE_VARIABLE, name, false, 0, NO_ARGUMENTS, null);
+    }
+
+    /**
+     * @return {@code ?}
+     */
+    public static CType wildcard() {
+        return intern(Kind.WILDCARD, "?", false, 0, NO_ARGUMENTS, null);
+    }
+
+    /**
+     * @return {@code ? extends bound}
+     */
+    public static CType wildcardExtends(CType bound) {
+        return intern(Kind.WILDCARD_EXTENDS, "?", false, 0, NO_ARGUMENTS, checkBound(bound));
+    }
+
+    /**
+     * @return {@code ? super bound}
+     */
+    public static CType wildcardSuper(CType bound) {
+        return intern(Kind.WILDCARD_SUPER, "?", false, 0, NO_ARGUMENTS, checkBound(bound));
+    }
+
+    private static CType checkBound(CType bound) {
+        if (bound.isWildcard() || (bound.primitive && bound.arrayDimensions == 0)) throw new IllegalArgumentException("Invalid wildcard bound: " + bound.fullName);
+        return bound;
+    }
+
+    private static CType intern(String name, boolean primitive, int arrayDimensions) {
+        return intern(Kind.CLASS, name, primitive, arrayDimensions, NO_ARGUMENTS, null);
+    }
+
+    private static CType intern(Kind kind, String name, boolean primitive, int arrayDimensions, CType[] typeArguments, CType bound) {
+        if (arrayDimensions < 0 || arrayDimensions > 255) throw new IllegalArgumentException("Array dimensions must be between 0 and 255 (inclusive)");
+        val key = new Key(kind, name, arrayDimensions, typeArguments, bound);
+        val existing = interned.get(key);
+        val listener = GenerationMetrics.getListener();
+        if (existing != null) {
+            if (listener != null) listener.typeLookup(existing, true);
+            return existing;
+        }
+        // Interned outside of computeIfAbsent, which must not be re-entered
+        val erasure = erasureOf(kind, name, arrayDimensions, typeArguments, bound);
+        val created = new boolean[1];
+        val type = interned.computeIfAbsent(key, (k) -> {
+            created[0] = true;
+            return new CType(k, primitive, erasure);
+        });
+        if (listener != null) listener.typeLookup(type, !created[0]);
+        return type;
+    }
+
+    /**
+     * @return The erased type, or null if the type is its own erasure.
+     */
+    private static CType erasureOf(Kind kind, String name, int arrayDimensions, CType[] typeArguments, CType bound) {
+        switch (kind) {
+            case CLASS: return typeArguments.length == 0 ? null : of(name, arrayDimensions);
+            case WILDCARD_EXTENDS: return bound.erasure();
+            default: return of("java.lang.Object", arrayDimensions);
+        }
+    }
+
+    private static boolean isPrimitiveName(String name) {
+        switch (name) {
+            case "void":
+            case "boolean":
+            case "byte":
+            case "char":
+            case "short":
+            case "int":
+            case "long":
+            case "float":
+            case "double":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private final Kind kind;
     private final String name;
     private final boolean primitive;
     private final int arrayDimensions;
+    private final CType[] typeArguments;
+    private final List<CType> typeArgumentList;
+    private final CType bound;
+    private final CType erasure;
+    private final int hash;
+    private final String fullName;
+    private final String simpleName;
+    private final String importLine;
+    private final Set<CType> asSet;
 
-    private CType(String name, boolean primitive, int arrayDimensions) {
-        if (arrayDimensions < 0 || arrayDimensions > 255) throw new IllegalArgumentException("Array dimensions must be between 0 and 255 (inclusive)");
-        this.name = name;
+    private CType(Key key, boolean primitive, CType erasure) {
+        this.kind = key.kind;
+        this.name = key.name;
         this.primitive = primitive;
-        this.arrayDimensions = arrayDimensions;
+        this.arrayDimensions = key.arrayDimensions;
+        this.typeArguments = key.typeArguments;
+        this.typeArgumentList = typeArguments.length == 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(typeArguments));
+        this.bound = key.bound;
+        this.erasure = erasure == null ? this : erasure;
+        this.hash = key.hash;
+        val arraySuffix = arraySuffix(arrayDimensions);
+        switch (kind) {
+            case CLASS:
+                this.fullName = name + arguments(typeArguments, false) + arraySuffix;
+                this.simpleName = name.substring(name.lastIndexOf('.') + 1) + arguments(typeArguments, true) + arraySuffix;
+                break;
+            case TYPE_VARIABLE:
+                this.fullName = this.simpleName = name + arraySuffix;
+                break;
+            case WILDCARD_EXTENDS:
+                this.fullName = "? extends " + bound.fullName;
+                this.simpleName = "? extends " + bound.simpleName;
+                break;
+            case WILDCARD_SUPER:
+                this.fullName = "? super " + bound.fullName;
+                this.simpleName = "? super " + bound.simpleName;
+                break;
+            default:
+                this.fullName = this.simpleName = "?";
+                break;
+        }
+        this.importLine = primitive || kind != Kind.CLASS ? "" : "import " + name + ";\n";
+        this.asSet = Collections.singleton(this);
     }
 
-    public String getName() {
-        val r = new StringBuilder();
-        r.append(getNameAsImport());
+    private static String arguments(CType[] typeArguments, boolean simple) {
+        if (typeArguments.length == 0) return "";
+        val r = new StringBuilder("<");
+        for (int i = 0; i < typeArguments.length; i++) {
+            if (i > 0) r.append(", ");
+            r.append(simple ? typeArguments[i].simpleName : typeArguments[i].fullName);
+        }
+        return r.append('>').toString();
+    }
+
+    private static String arraySuffix(int arrayDimensions) {
+        if (arrayDimensions == 0) return "";
+        val r = new StringBuilder(arrayDimensions * 2);
         for (int i = 0; i < arrayDimensions; i++) {
             r.append("[]");
         }
         return r.toString();
     }
 
+    public String getName() {
+        return fullName;
+    }
+
     public String getNameAsImport() {
         return name;
     }
 
     public String getSimpleName() {
-        val split = name.split("\\.");
-        val r = new StringBuilder();
-        r.append(split[split.length - 1]);
-        for (int i = 0; i < arrayDimensions; i++) {
-            r.append("[]");
-        }
-        return r.toString();
+        return simpleName;
+    }
+
+    /**
+     * @return A shared singleton set containing this type.
+     */
+    public Set<CType> asSet() {
+        return asSet;
     }
 
     public boolean isArray() {
@@ -115,71 +288,192 @@ public final class CType {
     }
 
     public CType arrayOf() {
-        return CType.of(name, arrayDimensions + 1);
+        if (isWildcard()) throw new IllegalStateException("Wildcards cannot be array components");
+        return intern(kind, name, primitive, arrayDimensions + 1, typeArguments, bound);
     }
 
     public CType arrayBaseType() {
-        return arrayDimensions == 0 ? this : CType.of(name, 0);
+        return arrayDimensions == 0 ? this : intern(kind, name, primitive, 0, typeArguments, bound);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return The type arguments of a parameterized type, empty for any other type.
+     */
+    public List<CType> getTypeArguments() {
+        return typeArgumentList;
+    }
+
+    /**
+     * @return The bound of a bounded wildcard, null for any other type.
+     */
+    public CType getBound() {
+        return bound;
+    }
+
+    public boolean isTypeVariable() {
+        return kind == Kind.TYPE_VARIABLE;
+    }
+
+    public boolean isWildcard() {
+        return kind == Kind.WILDCARD || kind == Kind.WILDCARD_EXTENDS || kind == Kind.WILDCARD_SUPER;
+    }
+
+    /**
+     * @return True if this is a plain class, primitive or array type without type arguments, type variables or
+     *         wildcards.
+     */
+    public boolean isRaw() {
+        return erasure == this;
+    }
+
+    /**
+     * @return This type with its type arguments removed, type variables and wildcards replaced by their bound (or
+     *         {@link #OBJECT}), keeping array dimensions.
+     */
+    public CType erasure() {
+        return erasure;
+    }
+
+    /**
+     * Visits the raw non-array class types this type is made of: the erasure of every parameterized or plain class
+     * type, including the ones nested in type arguments and wildcard bounds. Type variables contribute nothing.
+     */
+    public void forEachRawType(Consumer<? super CType> action) {
+        switch (kind) {
+            case CLASS:
+                action.accept(arrayDimensions == 0 && typeArguments.length == 0 ? this : intern(name, primitive, 0));
+                for (val arg: typeArguments) {
+                    arg.forEachRawType(action);
+                }
+                break;
+            case WILDCARD_EXTENDS:
+            case WILDCARD_SUPER:
+                bound.forEachRawType(action);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Renders this type, spelling every raw class type the way the resolver spells it. For raw types this is the same
+     * as {@code names.nameOf(this)}.
+     */
+    public String render(TypeNameResolver names) {
+        if (isRaw()) return names.nameOf(this);
+        val out = new StringBuilder();
+        try {
+            renderTo(out, names);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Streaming form of {@link #render(TypeNameResolver)}, which does not build the rendered type as a string first.
+     */
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        if (isRaw()) {
+            out.append(names.nameOf(this));
+            return;
+        }
+        //Spelled the same way for every part, already cached
+        if (names == TypeNameResolver.SIMPLE) {
+            out.append(simpleName);
+            return;
+        }
+        if (names == TypeNameResolver.QUALIFIED) {
+            out.append(fullName);
+            return;
+        }
+        switch (kind) {
+            case CLASS:
+                out.append(names.nameOf(intern(name, false, 0))).append('<');
+                for (int i = 0; i < typeArguments.length; i++) {
+                    if (i > 0) out.append(", ");
+                    typeArguments[i].renderTo(out, names);
+                }
+                out.append('>');
+                for (int i = 0; i < arrayDimensions; i++) {
+                    out.append("[]");
+                }
+                return;
+            case WILDCARD_EXTENDS:
+                bound.renderTo(out.append("? extends "), names);
+                return;
+            case WILDCARD_SUPER:
+                bound.renderTo(out.append("? super "), names);
+                return;
+            default:
+                out.append(fullName);
+        }
     }
 
     public boolean isPrimitive() {return primitive;}
 
+    /**
+     * Results, including failed lookups, are cached per class loader. Nested classes are found even though their name
+     * uses '.' instead of '$'. Types that are not raw resolve to the class of their {@link #erasure()}.
+     */
     public Optional<Class<?>> tryGetClass(ClassLoader classLoader) {
-        Class<?> baseType;
-        if (primitive) {
+        if (!isRaw()) return erasure.tryGetClass(classLoader);
+        if (primitive && arrayDimensions == 0) {
             switch (name) {
-                case "void": baseType = void.class; break;
-                case "byte": baseType = byte.class; break;
-                case "char": baseType = char.class; break;
-                case "short": baseType = short.class; break;
-                case "int": baseType = int.class; break;
-                case "long": baseType = long.class; break;
-                case "float": baseType = float.class; break;
-                case "double": baseType = double.class; break;
-                default: baseType = null; break;
-            }
-        } else {
-            try {
-                baseType = Class.forName(name, false, classLoader);
-            } catch (ClassNotFoundException e) {
-                baseType = null;
+                case "void": return Optional.of(void.class);
+                case "boolean": return Optional.of(boolean.class);
+                case "byte": return Optional.of(byte.class);
+                case "char": return Optional.of(char.class);
+                case "short": return Optional.of(short.class);
+                case "int": return Optional.of(int.class);
+                case "long": return Optional.of(long.class);
+                case "float": return Optional.of(float.class);
+                case "double": return Optional.of(double.class);
+                default: return Optional.empty();
             }
         }
-        if (baseType == null)
-            return Optional.empty();
-        else {
-            if (arrayDimensions == 0) {
-                return Optional.of(baseType);
-            } else {
-                int[] sizes = new int[arrayDimensions];
-                return Optional.ofNullable(Array.newInstance(baseType, sizes).getClass());
+        return ClassResolutionCache.resolve(this, classLoader);
+    }
+
+    /**
+     * Resolves every given type through {@link #tryGetClass}, for example to validate that a whole model only refers to
+     * available classes.
+     * @return The result of every distinct type, in iteration order.
+     */
+    public static Map<CType, Optional<Class<?>>> resolveAll(Collection<CType> types, ClassLoader classLoader) {
+        val result = new LinkedHashMap<CType, Optional<Class<?>>>();
+        for (val type: types) {
+            if (!result.containsKey(type)) {
+                result.put(type, type.tryGetClass(classLoader));
             }
         }
+        return result;
+    }
 
+    /**
+     * Forgets the cached lookups of the given class loader, for example after it defined new classes that failed to
+     * resolve before.
+     */
+    public static void clearResolutionCache(ClassLoader classLoader) {
+        ClassResolutionCache.invalidate(classLoader);
     }
 
     public String asImport() {
-        return primitive ? "" : String.format("import %s;\n", name);
+        return importLine;
     }
 
     @Override
     public boolean equals(Object o) {
-        if (this == o) return true;
-        if (!(o instanceof CType)) return false;
-
-        CType cType = (CType) o;
-
-        if (isPrimitive() != cType.isPrimitive()) return false;
-        if (arrayDimensions != cType.arrayDimensions) return false;
-        return getName().equals(cType.getName());
+        return this == o;
     }
 
     @Override
     public int hashCode() {
-        int result = getName().hashCode();
-        result = 31 * result + (isPrimitive() ? 1 : 0);
-        result = 31 * result + arrayDimensions;
-        return result;
+        return hash;
     }
 
     private static Class<?> getBaseTypeOfNDimensionalArray(Class<?> clazz) {
@@ -197,4 +491,67 @@ public final class CType {
         }
         return dimensions;
     }
+
+    public enum Kind {
+        /**
+         * A primitive, plain or parameterized class type.
+         */
+        CLASS,
+        TYPE_VARIABLE,
+        WILDCARD,
+        WILDCARD_EXTENDS,
+        WILDCARD_SUPER
+    }
+
+    private static final class Key {
+        private final Kind kind;
+        private final String name;
+        private final int arrayDimensions;
+        /**
+         * Canonical instances, compared by identity.
+         */
+        private final CType[] typeArguments;
+        private final CType bound;
+        private final int hash;
+
+        private Key(Kind kind, String name, int arrayDimensions, CType[] typeArguments, CType bound) {
+            this.kind = kind;
+            this.name = name;
+            this.arrayDimensions = arrayDimensions;
+            this.typeArguments = typeArguments;
+            this.bound = bound;
+            // Plain class types keep the hash they always had, other kinds mix in their components
+            int h = 31 * name.hashCode() + arrayDimensions;
+            if (kind != Kind.CLASS) {
+                h = 31 * h + kind.ordinal();
+            }
+            for (val arg: typeArguments) {
+                h = 31 * h + arg.hash;
+            }
+            if (bound != null) {
+                h = 31 * h + bound.hash;
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key key = (Key) o;
+
+            if (hash != key.hash || arrayDimensions != key.arrayDimensions || kind != key.kind || bound != key.bound || !name.equals(key.name)) return false;
+            if (typeArguments.length != key.typeArguments.length) return false;
+            for (int i = 0; i < typeArguments.length; i++) {
+                if (typeArguments[i] != key.typeArguments[i]) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
 }
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen;
+
+import lombok.val;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Immutable snapshot of the non-private members of a class, see {@link CClass#fromClass}. Snapshots are cached per
+ * class, so mirroring a class again only copies the already built members into a new {@link CClass}.
+ */
+final class ClassMirror {
+    private static final ClassValue<ClassMirror> mirrors = new ClassValue<ClassMirror>() {
+        @Override
+        protected ClassMirror computeValue(Class<?> clazz) {
+            return new ClassMirror(clazz);
+        }
+    };
+    /**
+     * Reflection returns members in no particular order, so they are sorted to keep the rendered mirror stable.
+     */
+    private static final Comparator<CConstructor> CONSTRUCTOR_ORDER = Comparator.comparing((constructor) -> constructor.paramList.toString());
+    private static final Comparator<CMethod> METHOD_ORDER = Comparator.<CMethod, String>comparing((method) -> method.name).thenComparing((method) -> method.paramList.toString());
+
+    /**
+     * Reflection reports varargs with the same bit as {@link Modifier#TRANSIENT}, so member modifiers are masked to the
+     * ones valid in source. Mirrored methods always get a body, so they cannot stay abstract or native.
+     */
+    /**
+     * Body of mirrored non-void methods, since an empty body would not compile.
+     */
+    private static final String PLACEHOLDER = "throw new UnsupportedOperationException();";
+    private static final int MIRRORED_METHOD_MODIFIERS = Modifier.methodModifiers() & ~(Modifier.ABSTRACT | Modifier.NATIVE);
+
+    private final String pkg;
+    private final String name;
+    private final AccessSpecifier accessSpecifier;
+    private final CType superclass;
+    private final List<CField> fields = new ArrayList<>();
+    private final List<CConstructor> constructors = new ArrayList<>();
+    private final List<CMethod> methods = new ArrayList<>();
+
+    private ClassMirror(Class<?> clazz) {
+        val binaryName = clazz.getName();
+        val dot = binaryName.lastIndexOf('.');
+        this.pkg = dot < 0 ? "" : binaryName.substring(0, dot);
+        this.name = clazz.getSimpleName();
+        //Member class modifiers such as static or private are not valid on a top level class
+        this.accessSpecifier = AccessSpecifier.of(clazz.getModifiers() & (Modifier.PUBLIC | Modifier.FINAL | Modifier.ABSTRACT));
+        this.superclass = clazz.getSuperclass() == null ? null : CType.of(clazz.getSuperclass());
+        for (val field : clazz.getDeclaredFields()) {
+            if (field.isSynthetic() || Modifier.isPrivate(field.getModifiers())) continue;
+            fields.add(CField.builder()
+                             .accessSpecifier(AccessSpecifier.of(field.getModifiers() & Modifier.fieldModifiers()))
+                             .type(CType.of(field.getType()))
+                             .name(field.getName())
+                             .build());
+        }
+        for (val constructor : clazz.getDeclaredConstructors()) {
+            if (constructor.isSynthetic() || Modifier.isPrivate(constructor.getModifiers())) continue;
+            constructors.add(CConstructor.builder()
+                                         .accessSpecifier(AccessSpecifier.of(constructor.getModifiers() & Modifier.constructorModifiers()))
+                                         .paramList(parametersOf(constructor))
+                                         .build());
+        }
+        for (val method : clazz.getDeclaredMethods()) {
+            if (method.isSynthetic() || method.isBridge() || Modifier.isPrivate(method.getModifiers())) continue;
+            methods.add(CMethod.builder()
+                               .accessSpecifier(AccessSpecifier.of(method.getModifiers() & MIRRORED_METHOD_MODIFIERS))
+                               .returnType(CType.of(method.getReturnType()))
+                               .name(method.getName())
+                               .paramList(parametersOf(method))
+                               .code(method.getReturnType() == void.class ? "" : PLACEHOLDER)
+                               .build());
+        }
+        constructors.sort(CONSTRUCTOR_ORDER);
+        methods.sort(METHOD_ORDER);
+    }
+
+    static CClass mirror(Class<?> clazz) {
+        if (!isMirrorable(clazz)) {
+            throw new IllegalArgumentException("Cannot mirror " + clazz.getName());
+        }
+        return mirrors.get(clazz).toCClass();
+    }
+
+    /**
+     * Loads and mirrors the classes of a package in parallel. Classes that cannot be loaded or mirrored are skipped. Subpackages are not included.
+     *
+     * @return The mirrors, sorted by binary name.
+     */
+    static List<CClass> mirrorPackage(String pkg, ClassLoader loader, Executor executor) throws IOException {
+        val names = scan(pkg, loader);
+        val futures = new ArrayList<CompletableFuture<CClass>>(names.size());
+        for (val name : names) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    val clazz = Class.forName(name, false, loader);
+                    if (!isMirrorable(clazz) || clazz.isSynthetic()) return null;
+                    // Reflecting the members resolves their signatures, which fails if they use a missing class
+                    return mirrors.get(clazz).toCClass();
+                } catch (ClassNotFoundException | LinkageError e) {
+                    return null;
+                }
+            }, executor));
+        }
+        val result = new ArrayList<CClass>(futures.size());
+        for (val future : futures) {
+            val mirror = future.join();
+            if (mirror != null) result.add(mirror);
+        }
+        return result;
+    }
+
+    /**
+     * Interfaces, annotations and enums cannot be expressed as a {@link CClass}.
+     */
+    private static boolean isMirrorable(Class<?> clazz) {
+        return !clazz.isPrimitive() && !clazz.isArray() && !clazz.isAnonymousClass() && !clazz.isLocalClass() &&
+               !clazz.isInterface() && !clazz.isEnum();
+    }
+
+    private CClass toCClass() {
+        val cClass = CClass.builder().pkg(pkg).accessSpecifier(accessSpecifier).name(name).superclass(superclass).build();
+        fields.forEach(cClass::addField);
+        constructors.forEach(cClass::addConstructor);
+        methods.forEach(cClass::addMethod);
+        return cClass;
+    }
+
+    private static CImmutableList<CParameter> parametersOf(Executable executable) {
+        CImmutableList<CParameter> params = CImmutableList.empty();
+        for (Parameter parameter : executable.getParameters()) {
+            params = params.append(CParameter.builder().type(CType.of(parameter.getType())).name(parameter.getName()).build());
+        }
+        return params;
+    }
+
+    /**
+     * Lists the class files of a package in directories and jar files on the class path of the loader.
+     */
+    private static Set<String> scan(String pkg, ClassLoader loader) throws IOException {
+        val path = pkg.replace('.', '/');
+        val names = new TreeSet<String>();
+        val resources = loader.getResources(path);
+        while (resources.hasMoreElements()) {
+            val url = resources.nextElement();
+            switch (url.getProtocol()) {
+                case "file": {
+                    final Path dir;
+                    try {
+                        dir = Paths.get(url.toURI());
+                    } catch (URISyntaxException e) {
+                        throw new IOException("Invalid class path entry " + url, e);
+                    }
+                    try (val files = Files.list(dir)) {
+                        files.forEach((file) -> addClassName(names, pkg, file.getFileName().toString()));
+                    } catch (UncheckedIOException e) {
+                        throw e.getCause();
+                    }
+                    break;
+                }
+                case "jar": {
+                    val connection = (JarURLConnection) url.openConnection();
+                    connection.setUseCaches(false);
+                    try (val jar = connection.getJarFile()) {
+                        val prefix = path + "/";
+                        for (val entry : Collections.list(jar.entries())) {
+                            val entryName = entry.getName();
+                            if (entryName.startsWith(prefix) && entryName.indexOf('/', prefix.length()) < 0) {
+                                addClassName(names, pkg, entryName.substring(prefix.length()));
+                            }
+                        }
+                    }
+                    break;
+                }
+                default:
+                    //Other class path entries cannot be listed
+                    break;
+            }
+        }
+        return names;
+    }
+
+    private static void addClassName(Set<String> names, String pkg, String fileName) {
+        if (!fileName.endsWith(".class")) return;
+        val simpleName = fileName.substring(0, fileName.length() - ".class".length());
+        if (simpleName.equals("package-info") || simpleName.equals("module-info")) return;
+        names.add(pkg.isEmpty() ? simpleName : pkg + "." + simpleName);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen;
+
+import lombok.val;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per class loader cache of {@link CType#tryGetClass} results, including failed lookups. Loaders are weakly keyed, and
+ * classes are weakly referenced, so caching never keeps a loader alive.
+ */
+final class ClassResolutionCache {
+    private static final Object NOT_FOUND = new Object();
+    private static final Map<ClassLoader, LoaderCache> caches = new WeakHashMap<>();
+    /**
+     * The most recently used cache, to skip the synchronized lookup while the same loader is used repeatedly.
+     */
+    private static volatile LoaderCache last;
+
+    private ClassResolutionCache() {}
+
+    static Optional<Class<?>> resolve(CType type, ClassLoader loader) {
+        val cache = cacheOf(loader);
+        val cached = cache.classes.get(type);
+        if (cached == NOT_FOUND) return Optional.empty();
+        if (cached != null) {
+            val clazz = ((WeakReference<?>) cached).get();
+            if (clazz != null) return Optional.of((Class<?>) clazz);
+        }
+        val resolved = type.isArray() ? resolveArray(type, loader) : resolveClass(type.getNameAsImport(), loader);
+        cache.classes.put(type, resolved == null ? NOT_FOUND : new WeakReference<>(resolved));
+        return Optional.ofNullable(resolved);
+    }
+
+    static void invalidate(ClassLoader loader) {
+        synchronized (caches) {
+            caches.remove(loader);
+            last = null;
+        }
+    }
+
+    private static LoaderCache cacheOf(ClassLoader loader) {
+        val recent = last;
+        if (recent != null && recent.loader.get() == loader && (loader != null || recent.bootstrap)) {
+            return recent;
+        }
+        synchronized (caches) {
+            val cache = caches.computeIfAbsent(loader, LoaderCache::new);
+            last = cache;
+            return cache;
+        }
+    }
+
+    /**
+     * Array classes are looked up by their descriptor name, so no array has to be allocated.
+     */
+    private static Class<?> resolveArray(CType type, ClassLoader loader) {
+        val base = type.arrayBaseType().tryGetClass(loader).orElse(null);
+        if (base == null || base == void.class) return null;
+        val descriptor = new StringBuilder(type.arrayDimensions() + base.getName().length() + 2);
+        for (int i = 0; i < type.arrayDimensions(); i++) {
+            descriptor.append('[');
+        }
+        if (base.isPrimitive()) {
+            descriptor.append(primitiveDescriptor(base));
+        } else {
+            descriptor.append('L').append(base.getName()).append(';');
+        }
+        try {
+            return Class.forName(descriptor.toString(), false, base.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * CType names use '.' for nested classes too, so every '.' from the right is tried as a '$' separator as well.
+     */
+    private static Class<?> resolveClass(String name, ClassLoader loader) {
+        val candidate = new StringBuilder(name);
+        for (int i = name.length(); i >= 0; i = name.lastIndexOf('.', i - 1)) {
+            if (i < name.length()) candidate.setCharAt(i, '$');
+            try {
+                return Class.forName(candidate.toString(), false, loader);
+            } catch (ClassNotFoundException | LinkageError ignored) {
+            }
+            if (i <= 0) break;
+        }
+        return null;
+    }
+
+    private static char primitiveDescriptor(Class<?> primitive) {
+        if (primitive == boolean.class) return 'Z';
+        if (primitive == byte.class) return 'B';
+        if (primitive == char.class) return 'C';
+        if (primitive == short.class) return 'S';
+        if (primitive == int.class) return 'I';
+        if (primitive == long.class) return 'J';
+        if (primitive == float.class) return 'F';
+        if (primitive == double.class) return 'D';
+        throw new IllegalArgumentException("No array type for " + primitive);
+    }
+
+    private static final class LoaderCache {
+        private final WeakReference<ClassLoader> loader;
+        private final boolean bootstrap;
+        /**
+         * Values are either a weak reference to the class or {@link #NOT_FOUND}.
+         */
+        private final Map<CType, Object> classes = new ConcurrentHashMap<>();
+
+        private LoaderCache(ClassLoader loader) {
+            this.loader = new WeakReference<>(loader);
+            this.bootstrap = loader == null;
+        }
+    }
+}
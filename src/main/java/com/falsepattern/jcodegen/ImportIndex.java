@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen;
+
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Reference counted set of the types used by a class, indexed by simple name.
+ * <p>
+ * Every simple name is owned by the first type that was registered with it, which is rendered by its simple name and
+ * imported if necessary. Any other type sharing that simple name is rendered fully qualified. The class itself always
+ * owns its own simple name. When the last reference to an owner is removed, ownership passes to the next candidate.
+ */
+public class ImportIndex implements TypeNameResolver {
+    private final String pkg;
+    private final CType self;
+    private final Map<CType, Integer> refCounts = new HashMap<>();
+    private final Map<String, List<CType>> candidates = new HashMap<>();
+    private final TreeMap<String, CType> importLines = new TreeMap<>();
+
+    public ImportIndex(String pkg, CType self) {
+        this.pkg = pkg == null ? "" : pkg;
+        this.self = self;
+        val owners = new ArrayList<CType>(1);
+        owners.add(self);
+        candidates.put(self.getSimpleName(), owners);
+    }
+
+    /**
+     * Copies the given index, including the ownership of every simple name.
+     */
+    public ImportIndex(ImportIndex other) {
+        this.pkg = other.pkg;
+        this.self = other.self;
+        refCounts.putAll(other.refCounts);
+        other.candidates.forEach((simpleName, list) -> candidates.put(simpleName, new ArrayList<>(list)));
+        importLines.putAll(other.importLines);
+    }
+
+    /**
+     * Registers the raw class types of the given type, including the ones in its type arguments.
+     */
+    public void add(CType type) {
+        if (type.isRaw()) {
+            addRaw(type.arrayBaseType());
+        } else {
+            type.forEachRawType(this::addRaw);
+        }
+    }
+
+    private void addRaw(CType type) {
+        if (type.isPrimitive() || type == self) return;
+        val count = refCounts.merge(type, 1, Integer::sum);
+        if (count > 1) return;
+        val list = candidates.computeIfAbsent(type.getSimpleName(), (ignored) -> new ArrayList<>(1));
+        list.add(type);
+        if (list.get(0) == type && needsImport(type)) {
+            importLines.put(type.getNameAsImport(), type);
+        }
+    }
+
+    public void addAll(Collection<CType> types) {
+        for (val type: types) {
+            add(type);
+        }
+    }
+
+    public void remove(CType type) {
+        if (type.isRaw()) {
+            removeRaw(type.arrayBaseType());
+        } else {
+            type.forEachRawType(this::removeRaw);
+        }
+    }
+
+    private void removeRaw(CType type) {
+        if (type.isPrimitive() || type == self) return;
+        val count = refCounts.get(type);
+        if (count == null) return;
+        if (count > 1) {
+            refCounts.put(type, count - 1);
+            return;
+        }
+        refCounts.remove(type);
+        val simpleName = type.getSimpleName();
+        val list = candidates.get(simpleName);
+        val wasOwner = list.get(0) == type;
+        list.remove(type);
+        if (!wasOwner) return;
+        importLines.remove(type.getNameAsImport());
+        if (list.isEmpty()) {
+            candidates.remove(simpleName);
+        } else if (needsImport(list.get(0))) {
+            importLines.put(list.get(0).getNameAsImport(), list.get(0));
+        }
+    }
+
+    public void removeAll(Collection<CType> types) {
+        for (val type: types) {
+            remove(type);
+        }
+    }
+
+    /**
+     * @return The registered types, excluding primitives.
+     */
+    public Set<CType> getTypes() {
+        return Collections.unmodifiableSet(refCounts.keySet());
+    }
+
+    /**
+     * @return The types that need an import statement, sorted by name.
+     */
+    public Collection<CType> getImports() {
+        return Collections.unmodifiableCollection(importLines.values());
+    }
+
+    /**
+     * @return True if the type, including all of its type arguments, is rendered by simple names.
+     */
+    public boolean isSimple(CType type) {
+        if (type.isPrimitive()) return true;
+        if (!type.isRaw()) {
+            switch (type.getKind()) {
+                case TYPE_VARIABLE:
+                case WILDCARD:
+                    return true;
+                case WILDCARD_EXTENDS:
+                case WILDCARD_SUPER:
+                    return isSimple(type.getBound());
+                default:
+                    for (val arg: type.getTypeArguments()) {
+                        if (!isSimple(arg)) return false;
+                    }
+                    return isSimple(type.erasure());
+            }
+        }
+        val base = type.arrayBaseType();
+        val list = candidates.get(base.getSimpleName());
+        return list != null && list.get(0) == base;
+    }
+
+    /**
+     * @return True if every type of the carrier is rendered by its simple name.
+     */
+    public boolean isSimple(TypeCarrier carrier) {
+        for (val type: carrier.getTypes()) {
+            if (!isSimple(type)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String nameOf(CType type) {
+        if (isSimple(type)) return type.getSimpleName();
+        return type.isRaw() ? type.getName() : type.render(this);
+    }
+
+    private boolean needsImport(CType type) {
+        val name = type.getNameAsImport();
+        val split = name.lastIndexOf('.');
+        return split >= 0 && !(split == pkg.length() && name.startsWith(pkg));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen;
+
+import com.falsepattern.jcodegen.util.WeakInterner;
+import lombok.NonNull;
+import lombok.val;
+
+import java.util.ArrayList;
+
+/**
+ * Opt-in hash-consing of class members. Structurally equal instances (including their code) are replaced by one shared
+ * canonical instance, which is held weakly so that it can be collected once no class uses it anymore.
+ * <p>
+ * Children are interned before their parents, so parents only need to compare their children by identity.
+ * {@link AccessSpecifier} instances are canonical by construction and need no table.
+ */
+public final class MemberInterner {
+    private static final WeakInterner<String> STRINGS = WeakInterner.natural();
+    private static final WeakInterner<CParameter> PARAMETERS = new WeakInterner<>(
+            (param) -> param.getType().hashCode() * 31 + System.identityHashCode(param.getName()),
+            (a, b) -> a.getType() == b.getType() && a.getName() == b.getName());
+    private static final WeakInterner<CImmutableList<CParameter>> PARAMETER_LISTS = new WeakInterner<>(
+            MemberInterner::identityHash,
+            MemberInterner::identityEquals);
+    private static final WeakInterner<CMethod> METHODS = new WeakInterner<>(
+            (method) -> hash(method.accessSpecifier, method.returnType, method.name, method.paramList, method.code, method.body),
+            (a, b) -> a.accessSpecifier == b.accessSpecifier && a.returnType == b.returnType && a.name == b.name && a.paramList == b.paramList && a.code == b.code && a.body == b.body);
+    private static final WeakInterner<CConstructor> CONSTRUCTORS = new WeakInterner<>(
+            (constructor) -> hash(constructor.accessSpecifier, constructor.paramList, constructor.code, constructor.body),
+            (a, b) -> a.accessSpecifier == b.accessSpecifier && a.paramList == b.paramList && a.code == b.code && a.body == b.body);
+
+    private MemberInterner() {}
+
+    public static String intern(@NonNull String string) {
+        return STRINGS.intern(string);
+    }
+
+    public static CParameter intern(@NonNull CParameter parameter) {
+        val name = intern(parameter.getName());
+        val canonical = name == parameter.getName() ? parameter : CParameter.builder().type(parameter.getType()).name(name).build();
+        return PARAMETERS.intern(canonical);
+    }
+
+    public static CImmutableList<CParameter> intern(@NonNull CImmutableList<CParameter> parameters) {
+        val original = parameters.getParameters();
+        val canonical = new ArrayList<CParameter>(original.size());
+        boolean changed = false;
+        for (val parameter : original) {
+            val interned = intern(parameter);
+            changed |= interned != parameter;
+            canonical.add(interned);
+        }
+        return PARAMETER_LISTS.intern(changed ? new CImmutableList<>(canonical) : parameters);
+    }
+
+    public static CMethod intern(@NonNull CMethod method) {
+        val name = intern(method.name);
+        val paramList = intern(method.paramList);
+        val code = internNullable(method.code);
+        if (name == method.name && paramList == method.paramList && code == method.code) {
+            return METHODS.intern(method);
+        }
+        return METHODS.intern(CMethod.builder()
+                                     .accessSpecifier(method.accessSpecifier)
+                                     .returnType(method.returnType)
+                                     .name(name)
+                                     .paramList(paramList)
+                                     .code(code)
+                                     .body(method.body)
+                                     .build());
+    }
+
+    public static CConstructor intern(@NonNull CConstructor constructor) {
+        val paramList = intern(constructor.paramList);
+        val code = internNullable(constructor.code);
+        if (paramList == constructor.paramList && code == constructor.code) {
+            return CONSTRUCTORS.intern(constructor);
+        }
+        return CONSTRUCTORS.intern(CConstructor.builder()
+                                               .accessSpecifier(constructor.accessSpecifier)
+                                               .paramList(paramList)
+                                               .code(code)
+                                               .body(constructor.body)
+                                               .build());
+    }
+
+    private static String internNullable(String string) {
+        return string == null ? null : intern(string);
+    }
+
+    private static int hash(Object... parts) {
+        int result = 1;
+        for (val part : parts) {
+            result = 31 * result + System.identityHashCode(part);
+        }
+        return result;
+    }
+
+    private static int identityHash(CImmutableList<?> list) {
+        int result = 1;
+        for (val element : list.getParameters()) {
+            result = 31 * result + System.identityHashCode(element);
+        }
+        return result;
+    }
+
+    private static boolean identityEquals(CImmutableList<?> a, CImmutableList<?> b) {
+        val left = a.getParameters();
+        val right = b.getParameters();
+        if (left.size() != right.size()) return false;
+        for (int i = 0; i < left.size(); i++) {
+            if (left.get(i) != right.get(i)) return false;
+        }
+        return true;
+    }
+}
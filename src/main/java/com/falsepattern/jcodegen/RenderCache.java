@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen;
+
+import lombok.val;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Memoized rendering output of a single model element. The statistics are shared by every cache.
+ */
+public final class RenderCache {
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    public static long getHits() {
+        return hits.sum();
+    }
+
+    public static long getMisses() {
+        return misses.sum();
+    }
+
+    public static void resetStatistics() {
+        hits.reset();
+        misses.reset();
+    }
+
+    private volatile Entry entry;
+
+    RenderCache() {}
+
+    /**
+     * @param key Additional input the output depends on, or null. A cached output is only reused for an equal key.
+     */
+    String get(Object key, Renderable renderer) {
+        val cached = entry;
+        if (cached != null && Objects.equals(cached.key, key)) {
+            hits.increment();
+            return cached.rendered;
+        }
+        misses.increment();
+        val rendered = Renderable.render(renderer);
+        entry = new Entry(key, rendered);
+        return rendered;
+    }
+
+    void invalidate() {
+        entry = null;
+    }
+
+    private static final class Entry {
+        private final Object key;
+        private final String rendered;
+
+        private Entry(Object key, String rendered) {
+            this.key = key;
+            this.rendered = rendered;
+        }
+    }
+}
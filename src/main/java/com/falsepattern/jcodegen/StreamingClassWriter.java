@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen;
+
+import com.falsepattern.jcodegen.util.IndentingAppendable;
+import lombok.NonNull;
+import lombok.val;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Writes a class member by member, without retaining the members. Created through {@link CClass#stream}.
+ * <p>
+ * Members are written in the order they are pushed, with a blank line wherever the kind of member changes, so pushing
+ * the fields first, then the constructors and then the methods gives the same output as {@link CClass#toString()}.
+ * Closing this writer closes the class body, but not the underlying writer or channel.
+ */
+public final class StreamingClassWriter implements Closeable {
+    private static final int SHIFT_CHUNK = 64 * 1024;
+
+    private enum Kind {
+        FIELD, CONSTRUCTOR, METHOD
+    }
+
+    private final CClass cClass;
+    private final ImportIndex names;
+    private final Writer writer;
+    private final IndentingAppendable out;
+    /**
+     * Null when the imports were written up front.
+     */
+    private final SeekableByteChannel channel;
+    private final Charset charset;
+    private final long importStart;
+    private final int reservedImportBytes;
+    private Kind last;
+    private boolean closed;
+
+    private StreamingClassWriter(CClass cClass, Writer writer, SeekableByteChannel channel, Charset charset, long importStart, int reservedImportBytes) {
+        this.cClass = cClass;
+        this.names = new ImportIndex(cClass.importIndex());
+        this.writer = writer;
+        this.out = new IndentingAppendable(writer);
+        this.channel = channel;
+        this.charset = charset;
+        this.importStart = importStart;
+        this.reservedImportBytes = reservedImportBytes;
+    }
+
+    static StreamingClassWriter open(CClass cClass, @NonNull Writer out) throws IOException {
+        val writer = new StreamingClassWriter(cClass, out, null, null, 0, 0);
+        out.append("package ").append(cClass.getPkg()).append(";\n\n").append(importBlock(writer.names));
+        writer.begin();
+        return writer;
+    }
+
+    static StreamingClassWriter open(CClass cClass, @NonNull SeekableByteChannel channel, @NonNull Charset charset, int reservedImportBytes) throws IOException {
+        if (reservedImportBytes < 0) throw new IllegalArgumentException("Negative reserved import region: " + reservedImportBytes);
+        // Growing the import region reads back the written content, so an unreadable channel has to fail before
+        // anything is written rather than on close.
+        channel.read(ByteBuffer.allocate(0));
+        writeFully(channel, charset.encode("package " + cClass.getPkg() + ";\n\n"));
+        val importStart = channel.position();
+        val padding = ByteBuffer.allocate(reservedImportBytes);
+        while (padding.hasRemaining()) padding.put((byte) ' ');
+        padding.flip();
+        writeFully(channel, padding);
+        val writer = new StreamingClassWriter(cClass, Channels.newWriter(channel, charset.newEncoder(), -1), channel, charset, importStart, reservedImportBytes);
+        writer.begin();
+        return writer;
+    }
+
+    private void begin() throws IOException {
+        cClass.renderDeclaration(out, names);
+        out.indent(4);
+        for (val field: cClass.getFields()) {
+            field(field);
+        }
+        for (val constructor: cClass.getConstructors()) {
+            constructor(constructor);
+        }
+        for (val method: cClass.getMethods()) {
+            method(method);
+        }
+    }
+
+    public StreamingClassWriter field(@NonNull CField field) throws IOException {
+        next(Kind.FIELD, field);
+        field.renderTo(out, names);
+        out.append('\n');
+        return this;
+    }
+
+    public StreamingClassWriter constructor(@NonNull CConstructor constructor) throws IOException {
+        next(Kind.CONSTRUCTOR, constructor);
+        constructor.renderTo(out, cClass.getName(), names);
+        out.append('\n');
+        return this;
+    }
+
+    public StreamingClassWriter method(@NonNull CMethod method) throws IOException {
+        next(Kind.METHOD, method);
+        method.renderTo(out, names);
+        out.append('\n');
+        return this;
+    }
+
+    private void next(Kind kind, TypeCarrier member) throws IOException {
+        if (closed) throw new IllegalStateException("Class " + cClass.getName() + " was already closed");
+        if (channel != null) {
+            member.forEachType(names::add);
+        }
+        if (last != null && last != kind) {
+            out.append('\n');
+        }
+        last = kind;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        if (last == Kind.METHOD) {
+            out.append('\n');
+        }
+        out.outdent(4);
+        out.append('}');
+        writer.flush();
+        if (channel != null) {
+            patchImports();
+        }
+    }
+
+    private void patchImports() throws IOException {
+        val block = importBlock(names);
+        val bytes = charset.encode(block);
+        val needed = bytes.remaining();
+        val end = channel.position();
+        if (needed > reservedImportBytes) {
+            shift(importStart + reservedImportBytes, end, needed - reservedImportBytes);
+            channel.position(importStart);
+            writeFully(channel, bytes);
+        } else if (needed < reservedImportBytes) {
+            // The rest of the region becomes a line of spaces, taking the place of the blank line after the imports.
+            val padded = ByteBuffer.allocate(reservedImportBytes);
+            padded.put(bytes);
+            if (padded.position() > 0) padded.position(padded.position() - 1);
+            while (padded.remaining() > 1) padded.put((byte) ' ');
+            padded.put((byte) '\n');
+            padded.flip();
+            channel.position(importStart);
+            writeFully(channel, padded);
+        } else {
+            channel.position(importStart);
+            writeFully(channel, bytes);
+        }
+        channel.position(channel.size());
+    }
+
+    /**
+     * Moves the bytes between start and end back by the given distance, starting from the end.
+     */
+    private void shift(long start, long end, int distance) throws IOException {
+        val buffer = ByteBuffer.allocate((int) Math.min(SHIFT_CHUNK, Math.max(1, end - start)));
+        long position = end;
+        while (position > start) {
+            val length = (int) Math.min(buffer.capacity(), position - start);
+            position -= length;
+            buffer.clear();
+            buffer.limit(length);
+            channel.position(position);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) throw new IOException("Unexpected end of channel");
+            }
+            buffer.flip();
+            channel.position(position + distance);
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static String importBlock(ImportIndex names) {
+        val imports = names.getImports();
+        if (imports.isEmpty()) return "";
+        val block = new StringBuilder();
+        for (val type: imports) {
+            block.append(type.asImport());
+        }
+        return block.append('\n').toString();
+    }
+
+    private static void writeFully(SeekableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
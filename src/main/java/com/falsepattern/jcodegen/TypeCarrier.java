@@ -22,7 +22,19 @@
 package com.falsepattern.jcodegen;
 
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface TypeCarrier {
+    /**
+     * @return An immutable set of the referenced types.
+     */
     Set<CType> getTypes();
+
+    /**
+     * Visits the referenced types without materializing a set. A type referenced more than once may be visited more
+     * than once.
+     */
+    default void forEachType(Consumer<? super CType> action) {
+        getTypes().forEach(action);
+    }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.batch;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class BatchReport {
+    @Getter
+    private final List<UnitResult> units;
+    @Getter
+    private final long wallNanos;
+
+    public int count(UnitResult.Status status) {
+        int count = 0;
+        for (UnitResult unit: units) {
+            if (unit.getStatus() == status) count++;
+        }
+        return count;
+    }
+
+    public long totalBytes() {
+        long total = 0;
+        for (UnitResult unit: units) {
+            total += unit.getBytes();
+        }
+        return total;
+    }
+
+    public double unitsPerSecond() {
+        return wallNanos == 0 ? 0 : units.size() * 1e9 / wallNanos;
+    }
+
+    public double bytesPerSecond() {
+        return wallNanos == 0 ? 0 : totalBytes() * 1e9 / wallNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d units (%d written, %d unchanged, %d skipped), %d bytes in %.3f ms: %.1f units/s, %.1f KiB/s",
+                             units.size(),
+                             count(UnitResult.Status.WRITTEN),
+                             count(UnitResult.Status.UNCHANGED),
+                             count(UnitResult.Status.SKIPPED),
+                             totalBytes(),
+                             wallNanos / 1e6,
+                             unitsPerSecond(),
+                             bytesPerSecond() / 1024);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.batch;
+
+import com.falsepattern.jcodegen.CClass;
+import com.falsepattern.jcodegen.metrics.GenerationListener;
+import com.falsepattern.jcodegen.metrics.GenerationMetrics;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.val;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Renders a set of classes in parallel and writes each one to {@code <root>/<pkg path>/<name>.java}. Files whose
+ * content is already up to date are left untouched. With a {@link ContentHashIndex}, classes whose model did not change
+ * since the last run are not even rendered.
+ */
+@Builder
+public class CompilationUnitBatch {
+    @NonNull
+    private final Path root;
+    @Builder.Default
+    @NonNull
+    private final Executor executor = ForkJoinPool.commonPool();
+    @Builder.Default
+    @NonNull
+    private final Charset charset = StandardCharsets.UTF_8;
+    private final ContentHashIndex index;
+
+    public BatchReport write(Collection<CClass> classes) throws IOException {
+        val start = System.nanoTime();
+        val futures = new ArrayList<CompletableFuture<UnitResult>>(classes.size());
+        for (val cClass: classes) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return writeUnit(cClass);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor));
+        }
+        val results = new ArrayList<UnitResult>(futures.size());
+        try {
+            for (val future: futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) e.getCause()).getCause();
+            throw e;
+        }
+        if (index != null) {
+            index.flush();
+        }
+        return new BatchReport(results, System.nanoTime() - start);
+    }
+
+    static String qualifiedName(CClass cClass) {
+        val pkg = cClass.getPkg();
+        return pkg == null || pkg.isEmpty() ? cClass.getName() : pkg + "." + cClass.getName();
+    }
+
+    public Path pathOf(CClass cClass) {
+        val pkg = cClass.getPkg();
+        val dir = pkg == null || pkg.isEmpty() ? root : root.resolve(pkg.replace('.', '/'));
+        return dir.resolve(cClass.getName() + ".java");
+    }
+
+    private UnitResult writeUnit(CClass cClass) throws IOException {
+        val renderStart = System.nanoTime();
+        val path = pathOf(cClass);
+        long contentHash = 0;
+        if (index != null) {
+            contentHash = ContentHash.of(cClass);
+            if (index.isUnchanged(cClass, contentHash) && Files.isRegularFile(path)) {
+                return new UnitResult(cClass.getPkg(), cClass.getName(), path, UnitResult.Status.SKIPPED, 0, System.nanoTime() - renderStart, 0);
+            }
+        }
+        val source = new StringBuilder();
+        cClass.renderTo(source);
+        val bytes = charset.newEncoder().encode(CharBuffer.wrap(source));
+        val listener = GenerationMetrics.getListener();
+        if (listener != null) listener.phaseStarted(GenerationListener.Phase.WRITE);
+        val writeStart = System.nanoTime();
+        val size = bytes.remaining();
+        UnitResult.Status status = null;
+        try {
+            if (isUpToDate(path, bytes)) {
+                status = UnitResult.Status.UNCHANGED;
+            } else {
+                Files.createDirectories(path.getParent());
+                try (val channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                }
+                status = UnitResult.Status.WRITTEN;
+            }
+        } finally {
+            if (listener != null) listener.phaseEnded(GenerationListener.Phase.WRITE, status == UnitResult.Status.WRITTEN ? size : 0);
+        }
+        if (index != null) {
+            index.record(cClass, contentHash);
+        }
+        val end = System.nanoTime();
+        return new UnitResult(cClass.getPkg(), cClass.getName(), path, status, size, writeStart - renderStart, end - writeStart);
+    }
+
+    private static boolean isUpToDate(Path path, ByteBuffer expected) throws IOException {
+        if (!Files.isRegularFile(path) || Files.size(path) != expected.remaining()) return false;
+        val existing = ByteBuffer.allocate(expected.remaining());
+        try (val channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (existing.hasRemaining()) {
+                if (channel.read(existing) < 0) return false;
+            }
+        }
+        existing.flip();
+        return existing.equals(expected);
+    }
+}
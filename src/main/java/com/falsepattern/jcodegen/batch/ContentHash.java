@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.batch;
+
+import com.falsepattern.jcodegen.AccessSpecifier;
+import com.falsepattern.jcodegen.CClass;
+import com.falsepattern.jcodegen.CImmutableList;
+import com.falsepattern.jcodegen.CParameter;
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.Renderable;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import com.falsepattern.jcodegen.code.CBlock;
+import lombok.val;
+
+/**
+ * 64-bit fingerprint of everything that influences the rendered source of a class, computed from the model without
+ * rendering it.
+ */
+public final class ContentHash {
+    /**
+     * Bumped whenever the renderer output changes for an unchanged model.
+     */
+    private static final int FORMAT_VERSION = 3;
+
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private long hash = FNV_OFFSET;
+
+    private ContentHash() {}
+
+    public static long of(CClass cClass) {
+        val h = new ContentHash();
+        h.putInt(FORMAT_VERSION);
+        h.putString(cClass.getPkg());
+        h.putString(cClass.getName());
+        h.putAccess(cClass.getAccessSpecifier());
+        h.putType(cClass.getSuperclass());
+        // Which of two types with the same simple name gets imported depends on registration order, so the resolved
+        // imports are hashed in render order instead of the registered types.
+        val imports = cClass.getImportedTypes();
+        h.putInt(imports.size());
+        for (val type: imports) {
+            h.putType(type);
+        }
+        h.putInt(cClass.getAnnotations().size());
+        for (val annotation: cClass.getAnnotations()) {
+            h.putType(annotation.getType());
+            val params = annotation.getParams().getParameters();
+            h.putInt(params.size());
+            for (val param: params) {
+                h.putString(param.getName());
+                h.putString(param.getArg());
+            }
+        }
+        h.putInt(cClass.getFields().size());
+        for (val field: cClass.getFields()) {
+            h.putAccess(field.accessSpecifier);
+            h.putType(field.type);
+            h.putString(field.name);
+            h.putString(field.initializer);
+        }
+        h.putInt(cClass.getConstructors().size());
+        for (val constructor: cClass.getConstructors()) {
+            h.putAccess(constructor.accessSpecifier);
+            h.putParams(constructor.paramList);
+            h.putString(constructor.code);
+            h.putBody(constructor.body);
+        }
+        h.putInt(cClass.getMethods().size());
+        for (val method: cClass.getMethods()) {
+            h.putAccess(method.accessSpecifier);
+            h.putType(method.returnType);
+            h.putString(method.name);
+            h.putParams(method.paramList);
+            h.putString(method.code);
+            h.putBody(method.body);
+        }
+        return mix(h.hash);
+    }
+
+    public static long ofName(String qualifiedName) {
+        val h = new ContentHash();
+        h.putString(qualifiedName);
+        return mix(h.hash);
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    private void putAccess(AccessSpecifier access) {
+        putInt(access.getModifiers());
+    }
+
+    private void putParams(CImmutableList<CParameter> params) {
+        val list = params.getParameters();
+        putInt(list.size());
+        for (val param: list) {
+            putType(param.getType());
+            putString(param.getName());
+        }
+    }
+
+    private void putBody(CBlock body) {
+        //Absent bodies add nothing, so hashes of string-only classes stay stable
+        if (body != null) {
+            putString(Renderable.render(out -> body.renderTo(out, TypeNameResolver.QUALIFIED)));
+        }
+    }
+
+    private void putType(CType type) {
+        putString(type == null ? null : type.getName());
+    }
+
+    private void putString(String str) {
+        if (str == null) {
+            putInt(-1);
+            return;
+        }
+        putInt(str.length());
+        for (int i = 0; i < str.length(); i++) {
+            putChar(str.charAt(i));
+        }
+    }
+
+    private void putChar(char c) {
+        hash = (hash ^ (c & 0xFF)) * FNV_PRIME;
+        hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+    }
+
+    private void putInt(int value) {
+        putChar((char) value);
+        putChar((char) (value >>> 16));
+    }
+}
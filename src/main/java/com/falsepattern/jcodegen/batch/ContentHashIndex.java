@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.batch;
+
+import com.falsepattern.jcodegen.CClass;
+import lombok.val;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent, memory-mapped map from compilation unit (package + class name) to the {@link ContentHash} of the model it
+ * was last generated from.
+ * <p>
+ * Lookups read the mapping without locking. Recorded hashes are buffered and written by {@link #flush()} under a lock
+ * file shared with other processes. Every slot carries a checksum, so slots torn by a crash read as misses, which only
+ * causes the unit to be generated again.
+ */
+public class ContentHashIndex implements Closeable {
+    private static final long MAGIC = 0x4A43474944583031L;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 24;
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final long CHECK_SALT = 0x9E3779B97F4A7C15L;
+
+    private final Path path;
+    private final Path lockPath;
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+    private volatile MappedByteBuffer map;
+    private volatile int capacity;
+    private Object fileKey;
+
+    private ContentHashIndex(Path path) {
+        this.path = path;
+        this.lockPath = path.resolveSibling(path.getFileName() + ".lock");
+    }
+
+    public static ContentHashIndex open(Path path) throws IOException {
+        val index = new ContentHashIndex(path.toAbsolutePath());
+        if (index.path.getParent() != null) {
+            Files.createDirectories(index.path.getParent());
+        }
+        // Closing the channel releases the lock
+        try (val lock = FileChannel.open(index.lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            lock.lock();
+            index.remap();
+        }
+        return index;
+    }
+
+    public boolean isUnchanged(CClass cClass, long contentHash) {
+        return lookup(ContentHash.ofName(CompilationUnitBatch.qualifiedName(cClass)), contentHash);
+    }
+
+    public void record(CClass cClass, long contentHash) {
+        pending.put(ContentHash.ofName(CompilationUnitBatch.qualifiedName(cClass)), contentHash);
+    }
+
+    public synchronized void flush() throws IOException {
+        if (pending.isEmpty()) return;
+        try (val lock = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            lock.lock();
+            if (!Objects.equals(fileKey, currentFileKey()) || fileKey == null) {
+                remap();
+            }
+            val size = map.getInt(16);
+            if ((size + pending.size()) * 4L > capacity * 3L) {
+                grow(size + pending.size());
+            }
+            val buffer = map;
+            int added = 0;
+            for (val entry: pending.entrySet()) {
+                if (store(buffer, capacity, entry.getKey(), entry.getValue())) added++;
+            }
+            buffer.putInt(16, buffer.getInt(16) + added);
+            buffer.force();
+            pending.clear();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    private boolean lookup(long key, long contentHash) {
+        key = nonZero(key);
+        val buffer = map;
+        val capacity = this.capacity;
+        val mask = capacity - 1;
+        for (int i = (int) ContentHash.mix(key) & mask, probes = 0; probes < capacity; i = (i + 1) & mask, probes++) {
+            val offset = HEADER_SIZE + i * SLOT_SIZE;
+            val slotKey = buffer.getLong(offset);
+            if (slotKey == 0) return false;
+            if (slotKey == key) {
+                val stored = buffer.getLong(offset + 8);
+                val check = buffer.getLong(offset + 16);
+                return check == checksum(key, stored) && stored == contentHash;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the content hash and checksum before publishing the key, so a reader never trusts a half-written slot.
+     *
+     * @return True if a new slot was taken.
+     */
+    private static boolean store(MappedByteBuffer buffer, int capacity, long key, long contentHash) {
+        key = nonZero(key);
+        val mask = capacity - 1;
+        for (int i = (int) ContentHash.mix(key) & mask; ; i = (i + 1) & mask) {
+            val offset = HEADER_SIZE + i * SLOT_SIZE;
+            val slotKey = buffer.getLong(offset);
+            if (slotKey == 0 || slotKey == key) {
+                buffer.putLong(offset + 8, contentHash);
+                buffer.putLong(offset + 16, checksum(key, contentHash));
+                if (slotKey == 0) {
+                    buffer.putLong(offset, key);
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    private void grow(int required) throws IOException {
+        int newCapacity = capacity;
+        while (required * 4L > newCapacity * 3L) {
+            newCapacity <<= 1;
+        }
+        val tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (val channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            val grown = initialize(channel, newCapacity);
+            int size = 0;
+            for (int i = 0; i < capacity; i++) {
+                val offset = HEADER_SIZE + i * SLOT_SIZE;
+                val key = map.getLong(offset);
+                val content = map.getLong(offset + 8);
+                if (key != 0 && map.getLong(offset + 16) == checksum(key, content) && store(grown, newCapacity, key, content)) {
+                    size++;
+                }
+            }
+            grown.putInt(16, size);
+            grown.force();
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        remap();
+    }
+
+    private void remap() throws IOException {
+        try (val channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer mapped = null;
+            val fileSize = channel.size();
+            if (fileSize >= HEADER_SIZE) {
+                mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+                val fileCapacity = mapped.getInt(12);
+                val valid = mapped.getLong(0) == MAGIC
+                            && mapped.getInt(8) == VERSION
+                            && fileCapacity > 0
+                            && Integer.bitCount(fileCapacity) == 1
+                            && fileSize == HEADER_SIZE + (long) fileCapacity * SLOT_SIZE;
+                if (!valid) mapped = null;
+            }
+            if (mapped == null) {
+                channel.truncate(0);
+                mapped = initialize(channel, DEFAULT_CAPACITY);
+                mapped.force();
+            }
+            capacity = mapped.getInt(12);
+            map = mapped;
+        }
+        fileKey = currentFileKey();
+    }
+
+    private static MappedByteBuffer initialize(FileChannel channel, int capacity) throws IOException {
+        val mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        mapped.putLong(0, MAGIC);
+        mapped.putInt(8, VERSION);
+        mapped.putInt(12, capacity);
+        mapped.putInt(16, 0);
+        return mapped;
+    }
+
+    private Object currentFileKey() throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    }
+
+    private static long checksum(long key, long contentHash) {
+        return ContentHash.mix(key ^ Long.rotateLeft(contentHash, 29) ^ CHECK_SALT);
+    }
+
+    private static long nonZero(long key) {
+        return key == 0 ? 1 : key;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.bytecode;
+
+import com.falsepattern.jcodegen.CClass;
+import com.falsepattern.jcodegen.compile.InMemoryCompiler;
+import com.falsepattern.jcodegen.compile.MemoryClassLoader;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Emits class files directly from the model, skipping java source entirely. Classes containing members that cannot be
+ * translated directly are compiled from source with the fallback {@link InMemoryCompiler} in one batch.
+ */
+@Builder
+public class BytecodeBackend {
+    @Builder.Default
+    @NonNull
+    private final ClassLoader parent = BytecodeBackend.class.getClassLoader();
+    @Builder.Default
+    @NonNull
+    private final InMemoryCompiler fallback = InMemoryCompiler.builder().build();
+
+    public Optional<byte[]> emit(CClass cClass) {
+        return Optional.ofNullable(new BytecodeEmitter(parent, Collections.emptyMap()).emit(cClass));
+    }
+
+    public Map<String, Class<?>> compile(Collection<CClass> classes) {
+        val loader = new MemoryClassLoader(parent, compileToBytecode(classes));
+        val result = new LinkedHashMap<String, Class<?>>();
+        for (val cClass: classes) {
+            val name = cClass.getCType().getNameAsImport();
+            try {
+                result.put(name, loader.loadClass(name));
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("No class file was produced for " + name, e);
+            }
+        }
+        return result;
+    }
+
+    public Map<String, byte[]> compileToBytecode(Collection<CClass> classes) {
+        val generated = new HashMap<String, CClass>();
+        for (val cClass: classes) {
+            generated.put(cClass.getCType().getNameAsImport(), cClass);
+        }
+        val emitter = new BytecodeEmitter(parent, generated);
+        val emitted = new LinkedHashMap<String, byte[]>();
+        val unsupported = new ArrayList<CClass>();
+        for (val cClass: classes) {
+            val bytes = emitter.emit(cClass);
+            if (bytes == null) {
+                unsupported.add(cClass);
+            } else {
+                emitted.put(cClass.getCType().getNameAsImport(), bytes);
+            }
+        }
+        if (unsupported.isEmpty()) {
+            return emitted;
+        }
+        val result = new LinkedHashMap<String, byte[]>(emitted);
+        result.putAll(fallback.compileToBytecode(unsupported, emitted));
+        return result;
+    }
+}
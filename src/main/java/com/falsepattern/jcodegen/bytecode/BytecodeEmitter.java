@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.bytecode;
+
+import com.falsepattern.jcodegen.AccessSpecifier;
+import com.falsepattern.jcodegen.CClass;
+import com.falsepattern.jcodegen.CConstructor;
+import com.falsepattern.jcodegen.CField;
+import com.falsepattern.jcodegen.CMethod;
+import com.falsepattern.jcodegen.CParameter;
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.TypeCarrier;
+import lombok.val;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Translates a class into a class file, as long as every member is one of the shapes produced by
+ * {@link CClass#superConstructors(CClass)}, {@link CField#getter()} and {@link CField#setter()}.
+ */
+class BytecodeEmitter {
+    private static final Pattern SUPER_CALL = Pattern.compile("\\s*super\\s*\\((.*)\\)\\s*;\\s*", Pattern.DOTALL);
+    private static final Pattern ARGUMENT_SEPARATOR = Pattern.compile("\\s*,\\s*");
+    private static final Pattern GETTER = Pattern.compile("\\s*return\\s+(this\\s*\\.\\s*)?([\\p{javaJavaIdentifierStart}][\\p{javaJavaIdentifierPart}]*)\\s*;\\s*");
+    private static final Pattern SETTER = Pattern.compile("\\s*(this\\s*\\.\\s*)?([\\p{javaJavaIdentifierStart}][\\p{javaJavaIdentifierPart}]*)\\s*=\\s*([\\p{javaJavaIdentifierStart}][\\p{javaJavaIdentifierPart}]*)\\s*;\\s*");
+    private static final int VISIBILITIES = ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_PROTECTED | ClassFileWriter.ACC_PRIVATE;
+    private static final int CLASS_MODIFIERS = ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_FINAL | ClassFileWriter.ACC_ABSTRACT;
+    private static final int FIELD_MODIFIERS = VISIBILITIES | ClassFileWriter.ACC_STATIC | ClassFileWriter.ACC_VOLATILE | ClassFileWriter.ACC_TRANSIENT;
+    private static final int CONSTRUCTOR_MODIFIERS = VISIBILITIES;
+    private static final int METHOD_MODIFIERS = VISIBILITIES | ClassFileWriter.ACC_STATIC | ClassFileWriter.ACC_FINAL | ClassFileWriter.ACC_SYNCHRONIZED;
+
+    private final ClassLoader loader;
+    /**
+     * The classes generated in the same batch, by name.
+     */
+    private final Map<String, CClass> generatedClasses;
+    private final Map<String, String> internalNames = new HashMap<>();
+
+    BytecodeEmitter(ClassLoader loader, Map<String, CClass> generatedClasses) {
+        this.loader = loader;
+        this.generatedClasses = generatedClasses;
+    }
+
+    /**
+     * @return The class file, or null if the class contains a member this emitter cannot translate.
+     */
+    byte[] emit(CClass cClass) {
+        val access = cClass.getAccessSpecifier();
+        if (!cClass.getAnnotations().isEmpty() || access.isStatic) return null;
+        if (access.visibility != AccessSpecifier.Visibility.PUBLIC && access.visibility != AccessSpecifier.Visibility.PACKAGE) return null;
+        val superType = cClass.getSuperclass() == null ? CType.OBJECT : cClass.getSuperclass();
+        if (superType.isPrimitive() || superType.isArray()) return null;
+        // Generic types would need a Signature attribute, which is left to javac
+        if (!superType.isRaw() || !allRaw(cClass.getFields()) || !allRaw(cClass.getConstructors()) || !allRaw(cClass.getMethods())) return null;
+
+        val self = internalName(cClass.getCType());
+        val superName = internalName(superType);
+        if ((access.getModifiers() & ~CLASS_MODIFIERS) != 0) return null;
+        val classAccess = ClassFileWriter.ACC_SUPER | access.getModifiers();
+        val writer = new ClassFileWriter(classAccess, self, superName, cClass.getName() + ".java");
+
+        val fields = cClass.getFields();
+        for (val field: fields) {
+            if (field.initializer.length() > 0 || field.accessSpecifier.isFinal || (field.accessSpecifier.getModifiers() & ~FIELD_MODIFIERS) != 0) return null;
+            writer.field(memberAccess(field.accessSpecifier), field.name, descriptor(field.type));
+        }
+        if (cClass.getConstructors().isEmpty()) {
+            if (!hasSuperConstructor(cClass, superType, Collections.emptyList())) return null;
+            val code = new ClassFileWriter.Code().locals(1);
+            code.op(ClassFileWriter.Code.ALOAD_0, 1);
+            code.op(ClassFileWriter.Code.INVOKESPECIAL, writer.methodRef(superName, "<init>", "()V"), -1);
+            code.op(ClassFileWriter.Code.RETURN, 0);
+            writer.method(access.visibility == AccessSpecifier.Visibility.PUBLIC ? ClassFileWriter.ACC_PUBLIC : 0, "<init>", "()V", code);
+        }
+        for (val constructor: cClass.getConstructors()) {
+            if (!emitConstructor(writer, cClass, superType, superName, constructor)) return null;
+        }
+        for (val method: cClass.getMethods()) {
+            if (!emitAccessor(writer, self, fields, method)) return null;
+        }
+        return writer.toByteArray();
+    }
+
+    private boolean emitConstructor(ClassFileWriter writer, CClass cClass, CType superType, String superName, CConstructor constructor) {
+        if (constructor.body != null || (constructor.accessSpecifier.getModifiers() & ~CONSTRUCTOR_MODIFIERS) != 0) return false;
+        val params = constructor.paramList.getParameters();
+        val code = constructor.code.trim();
+        val superParams = code.isEmpty() ? 0 : params.size();
+        if (!code.isEmpty()) {
+            val matcher = SUPER_CALL.matcher(code);
+            if (!matcher.matches()) return false;
+            val arguments = matcher.group(1).trim();
+            val names = arguments.isEmpty() ? new String[0] : ARGUMENT_SEPARATOR.split(arguments);
+            if (names.length != params.size()) return false;
+            for (int i = 0; i < names.length; i++) {
+                if (!names[i].equals(params.get(i).getName())) return false;
+            }
+        }
+        val superParamTypes = new ArrayList<CType>(superParams);
+        for (int i = 0; i < superParams; i++) {
+            superParamTypes.add(params.get(i).getType());
+        }
+        if (!hasSuperConstructor(cClass, superType, superParamTypes)) return false;
+        val bytecode = new ClassFileWriter.Code();
+        bytecode.op(ClassFileWriter.Code.ALOAD_0, 1);
+        int slot = 1;
+        for (int i = 0; i < superParams; i++) {
+            val type = params.get(i).getType();
+            bytecode.local(loadOpcode(type), slot, size(type));
+            slot += size(type);
+        }
+        bytecode.op(ClassFileWriter.Code.INVOKESPECIAL, writer.methodRef(superName, "<init>", methodDescriptor(CType.VOID, params.subList(0, superParams))), -slot);
+        bytecode.op(ClassFileWriter.Code.RETURN, 0);
+        bytecode.locals(1 + parameterSlots(params));
+        writer.method(memberAccess(constructor.accessSpecifier), "<init>", methodDescriptor(CType.VOID, params), bytecode);
+        return true;
+    }
+
+    private boolean emitAccessor(ClassFileWriter writer, String self, List<CField> fields, CMethod method) {
+        val params = method.paramList.getParameters();
+        val isStatic = method.accessSpecifier.isStatic;
+        if (method.code == null || method.body != null || (method.accessSpecifier.getModifiers() & ~METHOD_MODIFIERS) != 0) return false;
+        val getter = GETTER.matcher(method.code);
+        val setter = SETTER.matcher(method.code);
+        val code = new ClassFileWriter.Code();
+        int slot = isStatic ? 0 : 1;
+        if (params.isEmpty() && getter.matches()) {
+            val field = findField(fields, getter.group(2));
+            if (field == null || field.accessSpecifier.isStatic != isStatic || field.type != method.returnType) return false;
+            if (isStatic && getter.group(1) != null) return false;
+            val ref = writer.fieldRef(self, field.name, descriptor(field.type));
+            if (isStatic) {
+                code.op(ClassFileWriter.Code.GETSTATIC, ref, size(field.type));
+            } else {
+                code.op(ClassFileWriter.Code.ALOAD_0, 1);
+                code.op(ClassFileWriter.Code.GETFIELD, ref, size(field.type) - 1);
+            }
+            code.op(returnOpcode(field.type), -size(field.type));
+        } else if (params.size() == 1 && method.returnType == CType.VOID && setter.matches()) {
+            val param = params.get(0);
+            val field = findField(fields, setter.group(2));
+            if (field == null || field.accessSpecifier.isStatic != isStatic || field.type != param.getType()) return false;
+            if (!setter.group(3).equals(param.getName()) || (setter.group(1) == null && field.name.equals(param.getName()))) return false;
+            if (isStatic && setter.group(1) != null) return false;
+            val ref = writer.fieldRef(self, field.name, descriptor(field.type));
+            if (isStatic) {
+                code.local(loadOpcode(param.getType()), 0, size(param.getType()));
+                code.op(ClassFileWriter.Code.PUTSTATIC, ref, -size(field.type));
+            } else {
+                code.op(ClassFileWriter.Code.ALOAD_0, 1);
+                code.local(loadOpcode(param.getType()), 1, size(param.getType()));
+                code.op(ClassFileWriter.Code.PUTFIELD, ref, -1 - size(field.type));
+            }
+            code.op(ClassFileWriter.Code.RETURN, 0);
+        } else {
+            return false;
+        }
+        code.locals(slot + parameterSlots(params));
+        writer.method(memberAccess(method.accessSpecifier), method.name, methodDescriptor(method.returnType, params), code);
+        return true;
+    }
+
+    /**
+     * javac resolves {@code super(...)} against the declared argument types, which may pick a constructor with wider
+     * parameter types. Only a superclass constructor with exactly the given parameter types is known to be the one
+     * javac would call, so anything else is left to the fallback.
+     */
+    private boolean hasSuperConstructor(CClass cClass, CType superType, List<CType> paramTypes) {
+        val generated = generatedClasses.get(superType.getNameAsImport());
+        if (generated != null) {
+            if (generated.getConstructors().isEmpty()) return paramTypes.isEmpty();
+            for (val constructor: generated.getConstructors()) {
+                val visibility = constructor.accessSpecifier.visibility;
+                if (visibility == AccessSpecifier.Visibility.PRIVATE) continue;
+                if (visibility == AccessSpecifier.Visibility.PACKAGE && !Objects.equals(generated.getPkg(), cClass.getPkg())) continue;
+                val params = constructor.paramList.getParameters();
+                if (params.size() != paramTypes.size()) continue;
+                boolean matches = true;
+                for (int i = 0; i < params.size() && matches; i++) {
+                    matches = params.get(i).getType().equals(paramTypes.get(i));
+                }
+                if (matches) return true;
+            }
+            return false;
+        }
+        val superClass = superType.tryGetClass(loader);
+        if (!superClass.isPresent()) return false;
+        for (val constructor: superClass.get().getDeclaredConstructors()) {
+            // Package access does not cross class loaders, and generated classes live in their own loader
+            if ((constructor.getModifiers() & (Modifier.PUBLIC | Modifier.PROTECTED)) == 0) continue;
+            val types = constructor.getParameterTypes();
+            if (types.length != paramTypes.size()) continue;
+            boolean matches = true;
+            for (int i = 0; i < types.length && matches; i++) {
+                matches = CType.of(types[i]).equals(paramTypes.get(i));
+            }
+            if (matches) return true;
+        }
+        return false;
+    }
+
+    private static boolean allRaw(List<? extends TypeCarrier> members) {
+        for (val member: members) {
+            for (val type: member.getTypes()) {
+                if (!type.isRaw()) return false;
+            }
+        }
+        return true;
+    }
+
+    private static CField findField(List<CField> fields, String name) {
+        for (val field: fields) {
+            if (field.name.equals(name)) return field;
+        }
+        return null;
+    }
+
+    /**
+     * The modifier bits of {@link AccessSpecifier} are the JVM access flags.
+     */
+    private static int memberAccess(AccessSpecifier access) {
+        return access.getModifiers();
+    }
+
+    private static int parameterSlots(List<CParameter> params) {
+        int slots = 0;
+        for (val param: params) {
+            slots += size(param.getType());
+        }
+        return slots;
+    }
+
+    private static int size(CType type) {
+        if (type == CType.VOID) return 0;
+        return type == CType.LONG || type == CType.DOUBLE ? 2 : 1;
+    }
+
+    private static int loadOpcode(CType type) {
+        if (!type.isPrimitive() || type.isArray()) return 0x19;
+        switch (type.getNameAsImport()) {
+            case "long": return 0x16;
+            case "float": return 0x17;
+            case "double": return 0x18;
+            default: return 0x15;
+        }
+    }
+
+    private static int returnOpcode(CType type) {
+        if (type == CType.VOID) return ClassFileWriter.Code.RETURN;
+        if (!type.isPrimitive() || type.isArray()) return 0xB0;
+        switch (type.getNameAsImport()) {
+            case "long": return 0xAD;
+            case "float": return 0xAE;
+            case "double": return 0xAF;
+            default: return 0xAC;
+        }
+    }
+
+    private String methodDescriptor(CType returnType, List<CParameter> params) {
+        val b = new StringBuilder("(");
+        for (val param: params) {
+            b.append(descriptor(param.getType()));
+        }
+        return b.append(')').append(descriptor(returnType)).toString();
+    }
+
+    private String descriptor(CType type) {
+        val b = new StringBuilder();
+        for (int i = 0; i < type.arrayDimensions(); i++) {
+            b.append('[');
+        }
+        if (type.isPrimitive()) {
+            switch (type.getNameAsImport()) {
+                case "void": b.append('V'); break;
+                case "boolean": b.append('Z'); break;
+                case "byte": b.append('B'); break;
+                case "char": b.append('C'); break;
+                case "short": b.append('S'); break;
+                case "int": b.append('I'); break;
+                case "long": b.append('J'); break;
+                case "float": b.append('F'); break;
+                case "double": b.append('D'); break;
+                default: throw new IllegalArgumentException("Unknown primitive type " + type.getNameAsImport());
+            }
+        } else {
+            b.append('L').append(internalName(type)).append(';');
+        }
+        return b.toString();
+    }
+
+    /**
+     * CType names use '.' for nested classes too, so the binary name is recovered through the class loader.
+     */
+    private String internalName(CType type) {
+        return internalNames.computeIfAbsent(type.getNameAsImport(), (name) -> {
+            if (!generatedClasses.containsKey(name)) {
+                val clazz = type.arrayBaseType().tryGetClass(loader);
+                if (clazz.isPresent()) return clazz.get().getName().replace('.', '/');
+            }
+            return name.replace('.', '/');
+        });
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.bytecode;
+
+import lombok.val;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal class file writer. Only supports straight-line code, so no stack map frames are emitted.
+ */
+class ClassFileWriter {
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_PROTECTED = 0x0004;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+    static final int ACC_SYNCHRONIZED = 0x0020;
+    static final int ACC_VOLATILE = 0x0040;
+    static final int ACC_TRANSIENT = 0x0080;
+    static final int ACC_ABSTRACT = 0x0400;
+
+    private static final int CLASS_FILE_VERSION = 52;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+    private int poolSize = 1;
+
+    private final ByteArrayOutputStream fieldBytes = new ByteArrayOutputStream();
+    private final DataOutputStream fields = new DataOutputStream(fieldBytes);
+    private int fieldCount = 0;
+
+    private final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+    private final DataOutputStream methods = new DataOutputStream(methodBytes);
+    private int methodCount = 0;
+
+    private final int access;
+    private final int thisClass;
+    private final int superClass;
+    private final int sourceFile;
+
+    ClassFileWriter(int access, String internalName, String superInternalName, String sourceFile) {
+        this.access = access;
+        this.thisClass = classRef(internalName);
+        this.superClass = classRef(superInternalName);
+        this.sourceFile = sourceFile == null ? 0 : utf8(sourceFile);
+    }
+
+    int utf8(String value) {
+        return constant("U" + value, (out) -> {
+            out.writeByte(CONSTANT_UTF8);
+            out.writeUTF(value);
+        });
+    }
+
+    int classRef(String internalName) {
+        val name = utf8(internalName);
+        return constant("C" + internalName, (out) -> {
+            out.writeByte(CONSTANT_CLASS);
+            out.writeShort(name);
+        });
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        val ownerIndex = classRef(owner);
+        val nameIndex = utf8(name);
+        val descriptorIndex = utf8(descriptor);
+        val nameAndType = constant("N" + name + ":" + descriptor, (out) -> {
+            out.writeByte(CONSTANT_NAME_AND_TYPE);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+        return constant(tag + owner + "." + name + ":" + descriptor, (out) -> {
+            out.writeByte(tag);
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    void field(int access, String name, String descriptor) {
+        val nameIndex = utf8(name);
+        val descriptorIndex = utf8(descriptor);
+        try {
+            fields.writeShort(access);
+            fields.writeShort(nameIndex);
+            fields.writeShort(descriptorIndex);
+            fields.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        fieldCount++;
+    }
+
+    void method(int access, String name, String descriptor, Code code) {
+        val nameIndex = utf8(name);
+        val descriptorIndex = utf8(descriptor);
+        val codeIndex = utf8("Code");
+        try {
+            methods.writeShort(access);
+            methods.writeShort(nameIndex);
+            methods.writeShort(descriptorIndex);
+            methods.writeShort(1);
+            methods.writeShort(codeIndex);
+            val bytecode = code.bytes.toByteArray();
+            methods.writeInt(12 + bytecode.length);
+            methods.writeShort(code.maxStack);
+            methods.writeShort(code.maxLocals);
+            methods.writeInt(bytecode.length);
+            methods.write(bytecode);
+            methods.writeShort(0);
+            methods.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        methodCount++;
+    }
+
+    byte[] toByteArray() {
+        val sourceFileAttribute = sourceFile == 0 ? 0 : utf8("SourceFile");
+        val result = new ByteArrayOutputStream(poolBytes.size() + fieldBytes.size() + methodBytes.size() + 32);
+        val out = new DataOutputStream(result);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(CLASS_FILE_VERSION);
+            out.writeShort(poolSize);
+            poolBytes.writeTo(out);
+            out.writeShort(access);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.writeShort(fieldCount);
+            fieldBytes.writeTo(out);
+            out.writeShort(methodCount);
+            methodBytes.writeTo(out);
+            if (sourceFile == 0) {
+                out.writeShort(0);
+            } else {
+                out.writeShort(1);
+                out.writeShort(sourceFileAttribute);
+                out.writeInt(2);
+                out.writeShort(sourceFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.toByteArray();
+    }
+
+    private int constant(String key, PoolEntryWriter writer) {
+        val existing = poolIndex.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            writer.write(pool);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        val index = poolSize++;
+        poolIndex.put(key, index);
+        return index;
+    }
+
+    private interface PoolEntryWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    static class Code {
+        static final int ALOAD_0 = 0x2A;
+        static final int GETSTATIC = 0xB2;
+        static final int PUTSTATIC = 0xB3;
+        static final int GETFIELD = 0xB4;
+        static final int PUTFIELD = 0xB5;
+        static final int INVOKESPECIAL = 0xB7;
+        static final int RETURN = 0xB1;
+        private static final int WIDE = 0xC4;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private int maxStack = 0;
+        private int maxLocals = 0;
+        private int stack = 0;
+
+        Code locals(int maxLocals) {
+            this.maxLocals = maxLocals;
+            return this;
+        }
+
+        Code op(int opcode, int stackDelta) {
+            bytes.write(opcode);
+            return adjust(stackDelta);
+        }
+
+        Code op(int opcode, int operand, int stackDelta) {
+            bytes.write(opcode);
+            bytes.write(operand >>> 8);
+            bytes.write(operand);
+            return adjust(stackDelta);
+        }
+
+        Code local(int opcode, int index, int stackDelta) {
+            if (index > 0xFF) {
+                bytes.write(WIDE);
+                return op(opcode, index, stackDelta);
+            }
+            bytes.write(opcode);
+            bytes.write(index);
+            return adjust(stackDelta);
+        }
+
+        private Code adjust(int stackDelta) {
+            stack += stackDelta;
+            maxStack = Math.max(maxStack, stack);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * {@code array[index]}.
+ */
+@RequiredArgsConstructor
+public final class CArrayAccess extends CodeNode implements CExpression {
+    @NonNull
+    public final CExpression array;
+    @NonNull
+    public final CExpression index;
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        array.forEachType(action);
+        index.forEachType(action);
+    }
+
+    @Override
+    public int estimateBytecodeSize() {
+        return array.estimateBytecodeSize() + index.estimateBytecodeSize() + 1;
+    }
+
+    @Override
+    public void forEachChild(Consumer<? super CodeElement> action) {
+        action.accept(array);
+        action.accept(index);
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        renderOperand(out, array, names);
+        out.append('[');
+        index.renderTo(out, names);
+        out.append(']');
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * {@code target = value}, or a compound assignment such as {@code target += value}.
+ */
+@RequiredArgsConstructor
+public final class CAssign extends CodeNode implements CExpression {
+    @NonNull
+    public final CExpression target;
+    @NonNull
+    public final String operator;
+    @NonNull
+    public final CExpression value;
+
+    @Override
+    public boolean isCompound() {
+        return true;
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        target.forEachType(action);
+        value.forEachType(action);
+    }
+
+    @Override
+    public int estimateBytecodeSize() {
+        //Compound assignments load the target before storing it, and the stored value may be duplicated
+        val targetSize = target.estimateBytecodeSize();
+        return value.estimateBytecodeSize() + (operator.equals("=") ? targetSize + 4 : 2 * targetSize + 6);
+    }
+
+    @Override
+    public void forEachChild(Consumer<? super CodeElement> action) {
+        action.accept(target);
+        action.accept(value);
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        target.renderTo(out, names);
+        out.append(' ').append(operator).append(' ');
+        value.renderTo(out, names);
+    }
+}
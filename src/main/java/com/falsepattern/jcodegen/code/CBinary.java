@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * {@code left operator right}, also used for {@code instanceof} with a {@link CTypeLiteral} on the right. Compound
+ * operands are always parenthesized, so the tree shape is preserved regardless of operator precedence.
+ */
+@RequiredArgsConstructor
+public final class CBinary extends CodeNode implements CExpression {
+    @NonNull
+    public final CExpression left;
+    @NonNull
+    public final String operator;
+    @NonNull
+    public final CExpression right;
+
+    @Override
+    public boolean isCompound() {
+        return true;
+    }
+
+    private int operatorSize() {
+        switch (operator) {
+            case "==": case "!=": case "<": case "<=": case ">": case ">=":
+                //lcmp/dcmpl, a branch and both boolean constants with a goto
+                return 9;
+            case "&&": case "||":
+                return 11;
+            case "instanceof":
+                return 0;
+            case "+":
+                //String concatenation through a StringBuilder chain
+                return isStringLiteral(left) || isStringLiteral(right) ? 16 : 2;
+            default:
+                //The operation and a possible widening conversion
+                return 2;
+        }
+    }
+
+    private static boolean isStringLiteral(CExpression expression) {
+        return expression instanceof CLiteral && ((CLiteral) expression).text.startsWith("\"");
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        left.forEachType(action);
+        right.forEachType(action);
+    }
+
+    @Override
+    public int estimateBytecodeSize() {
+        return left.estimateBytecodeSize() + right.estimateBytecodeSize() + operatorSize();
+    }
+
+    @Override
+    public void forEachChild(Consumer<? super CodeElement> action) {
+        action.accept(left);
+        action.accept(right);
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        renderOperand(out, left, names);
+        out.append(' ').append(operator).append(' ');
+        renderOperand(out, right, names);
+    }
+}
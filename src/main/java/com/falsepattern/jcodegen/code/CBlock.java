@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CImmutableList;
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import com.falsepattern.jcodegen.util.IndentingAppendable;
+import lombok.NonNull;
+import lombok.val;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@code { statements }}. Blocks are persistent: {@link #add} returns a new block sharing the statements of this one, so
+ * a dispatch body with thousands of cases can be built incrementally without copying.
+ */
+public final class CBlock extends CodeNode implements CStatement {
+    public static final CBlock EMPTY = new CBlock(CImmutableList.empty());
+
+    public final CImmutableList<CStatement> statements;
+
+    private CBlock(@NonNull CImmutableList<CStatement> statements) {
+        this.statements = statements;
+    }
+
+    public static CBlock of(CStatement... statements) {
+        return EMPTY.add(statements);
+    }
+
+    public static CBlock of(List<? extends CStatement> statements) {
+        CImmutableList<CStatement> result = EMPTY.statements;
+        for (val statement: statements) {
+            result = result.append(statement);
+        }
+        return new CBlock(result);
+    }
+
+    public CBlock add(@NonNull CStatement statement) {
+        return new CBlock(statements.append(statement));
+    }
+
+    public CBlock add(CStatement... statements) {
+        CImmutableList<CStatement> result = this.statements;
+        for (val statement: statements) {
+            result = result.append(statement);
+        }
+        return new CBlock(result);
+    }
+
+    public boolean isEmpty() {
+        return statements.getParameters().isEmpty();
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        forEachType(statements.getParameters(), action);
+    }
+
+    @Override
+    public int estimateBytecodeSize() {
+        return estimateBytecodeSize(statements.getParameters());
+    }
+
+    @Override
+    public void forEachChild(Consumer<? super CodeElement> action) {
+        statements.getParameters().forEach(action);
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        val w = IndentingAppendable.of(out);
+        w.append("{\n");
+        w.indent(4);
+        renderStatements(w, names);
+        w.outdent(4);
+        w.append('}');
+    }
+
+    /**
+     * Renders the statements one per line, without the surrounding braces.
+     */
+    public void renderStatements(Appendable out, TypeNameResolver names) throws IOException {
+        val w = IndentingAppendable.of(out);
+        for (val statement: statements.getParameters()) {
+            statement.renderTo(w, names);
+            w.append('\n');
+        }
+    }
+}
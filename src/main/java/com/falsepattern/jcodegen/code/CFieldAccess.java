@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * {@code target.name}, or {@code Owner.name} for static fields.
+ */
+public final class CFieldAccess extends CodeNode implements CExpression {
+    /**
+     * Null for static fields.
+     */
+    public final CExpression target;
+    /**
+     * Null for instance fields.
+     */
+    public final CType owner;
+    public final String name;
+
+    private CFieldAccess(CExpression target, CType owner, @NonNull String name) {
+        this.target = target;
+        this.owner = owner;
+        this.name = name;
+    }
+
+    public static CFieldAccess of(@NonNull CExpression target, String name) {
+        return new CFieldAccess(target, null, name);
+    }
+
+    public static CFieldAccess ofStatic(@NonNull CType owner, String name) {
+        return new CFieldAccess(null, owner, name);
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        if (target != null) {
+            target.forEachType(action);
+        } else {
+            action.accept(owner);
+        }
+    }
+
+    @Override
+    public int estimateBytecodeSize() {
+        return (target != null ? target.estimateBytecodeSize() : 0) + 3;
+    }
+
+    @Override
+    public void forEachChild(Consumer<? super CodeElement> action) {
+        if (target != null) action.accept(target);
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        if (target != null) {
+            renderOperand(out, target, names);
+        } else {
+            out.append(names.nameOf(owner));
+        }
+        out.append('.').append(name);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * {@code for (init; condition; update) {...}}. Any of the three header parts may be null.
+ */
+@RequiredArgsConstructor
+public final class CFor extends CodeNode implements CStatement {
+    public final CLocalVariable init;
+    public final CExpression condition;
+    public final CExpression update;
+    @NonNull
+    public final CBlock body;
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        if (init != null) init.forEachType(action);
+        if (condition != null) condition.forEachType(action);
+        if (update != null) update.forEachType(action);
+        body.forEachType(action);
+    }
+
+    @Override
+    public int estimateBytecodeSize() {
+        int size = body.estimateBytecodeSize() + 6;
+        if (init != null) size += init.estimateBytecodeSize();
+        if (condition != null) size += condition.estimateBytecodeSize();
+        if (update != null) size += update.estimateBytecodeSize() + 1;
+        return size;
+    }
+
+    @Override
+    public void forEachChild(Consumer<? super CodeElement> action) {
+        if (init != null) action.accept(init);
+        if (condition != null) action.accept(condition);
+        if (update != null) action.accept(update);
+        action.accept(body);
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        out.append("for (");
+        if (init != null) init.renderDeclaration(out, names);
+        out.append(';');
+        if (condition != null) {
+            out.append(' ');
+            condition.renderTo(out, names);
+        }
+        out.append(';');
+        if (update != null) {
+            out.append(' ');
+            update.renderTo(out, names);
+        }
+        out.append(") ");
+        body.renderTo(out, names);
+    }
+}
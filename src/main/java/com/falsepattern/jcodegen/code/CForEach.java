@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * {@code for (Type name: iterable) {...}}
+ */
+@RequiredArgsConstructor
+public final class CForEach extends CodeNode implements CStatement {
+    @NonNull
+    public final CType type;
+    @NonNull
+    public final String name;
+    @NonNull
+    public final CExpression iterable;
+    @NonNull
+    public final CBlock body;
+
+    public CVariable ref() {
+        return new CVariable(name);
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        action.accept(type);
+        iterable.forEachType(action);
+        body.forEachType(action);
+    }
+
+    @Override
+    public int estimateBytecodeSize() {
+        //iterator(), hasNext(), next(), checkcast and the local stores, or the index loop over an array
+        return iterable.estimateBytecodeSize() + body.estimateBytecodeSize() + 32;
+    }
+
+    @Override
+    public void forEachChild(Consumer<? super CodeElement> action) {
+        action.accept(iterable);
+        action.accept(body);
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        type.renderTo(out.append("for ("), names);
+        out.append(' ').append(name).append(": ");
+        iterable.renderTo(out, names);
+        out.append(") ");
+        body.renderTo(out, names);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * {@code if (condition) {...} else ...}, where the else branch is either a block or another if statement.
+ */
+public final class CIf extends CodeNode implements CStatement {
+    public final CExpression condition;
+    public final CBlock then;
+    /**
+     * A {@link CBlock}, a {@link CIf}, or null.
+     */
+    public final CStatement otherwise;
+
+    private CIf(@NonNull CExpression condition, @NonNull CBlock then, CStatement otherwise) {
+        this.condition = condition;
+        this.then = then;
+        this.otherwise = otherwise;
+    }
+
+    public static CIf of(CExpression condition, CBlock then) {
+        return new CIf(condition, then, null);
+    }
+
+    public static CIf of(CExpression condition, CBlock then, @NonNull CBlock otherwise) {
+        return new CIf(condition, then, otherwise);
+    }
+
+    public static CIf of(CExpression condition, CBlock then, @NonNull CIf otherwise) {
+        return new CIf(condition, then, otherwise);
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        condition.forEachType(action);
+        then.forEachType(action);
+        if (otherwise != null) otherwise.forEachType(action);
+    }
+
+    @Override
+    public int estimateBytecodeSize() {
+        //The condition is estimated as a value, which covers its branches
+        int size = condition.estimateBytecodeSize() + 3 + then.estimateBytecodeSize();
+        if (otherwise != null) size += 3 + otherwise.estimateBytecodeSize();
+        return size;
+    }
+
+    @Override
+    public void forEachChild(Consumer<? super CodeElement> action) {
+        action.accept(condition);
+        action.accept(then);
+        if (otherwise != null) action.accept(otherwise);
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        out.append("if (");
+        condition.renderTo(out, names);
+        out.append(") ");
+        then.renderTo(out, names);
+        if (otherwise != null) {
+            out.append(" else ");
+            otherwise.renderTo(out, names);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * {@code break [label];} or {@code continue [label];}
+ */
+@RequiredArgsConstructor
+public final class CJump extends CodeNode implements CStatement {
+    public static final CJump BREAK = new CJump(false, null);
+    public static final CJump CONTINUE = new CJump(true, null);
+
+    public final boolean isContinue;
+    /**
+     * Null for an unlabeled jump.
+     */
+    public final String label;
+
+    public static CJump breakTo(@NonNull String label) {
+        return new CJump(false, label);
+    }
+
+    public static CJump continueTo(@NonNull String label) {
+        return new CJump(true, label);
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+    }
+
+    @Override
+    public int estimateBytecodeSize() {
+        //goto_w is never emitted by javac
+        return 3;
+    }
+
+    @Override
+    public void forEachChild(Consumer<? super CodeElement> action) {
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        out.append(isContinue ? "continue" : "break");
+        if (label != null) out.append(' ').append(label);
+        out.append(';');
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+@RequiredArgsConstructor(staticName = "raw")
+public final class CLiteral extends CodeNode implements CExpression {
+    public static final CLiteral NULL = raw("null");
+    public static final CLiteral TRUE = raw("true");
+    public static final CLiteral FALSE = raw("false");
+
+    @NonNull
+    public final String text;
+
+    public static CLiteral of(int value) {
+        return raw(Integer.toString(value));
+    }
+
+    public static CLiteral of(long value) {
+        return raw(value + "L");
+    }
+
+    public static CLiteral of(float value) {
+        if (Float.isNaN(value)) return raw("Float.NaN");
+        if (Float.isInfinite(value)) return raw(value > 0 ? "Float.POSITIVE_INFINITY" : "Float.NEGATIVE_INFINITY");
+        return raw(value + "f");
+    }
+
+    public static CLiteral of(double value) {
+        if (Double.isNaN(value)) return raw("Double.NaN");
+        if (Double.isInfinite(value)) return raw(value > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY");
+        return raw(value + "d");
+    }
+
+    public static CLiteral of(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    public static CLiteral of(char value) {
+        return raw(value == '\'' ? "'\\''" : "'" + escape(String.valueOf(value)) + "'");
+    }
+
+    public static CLiteral of(@NonNull String value) {
+        return raw('"' + escape(value).replace("\"", "\\\"") + '"');
+    }
+
+    private static String escape(String value) {
+        StringBuilder result = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement;
+            switch (c) {
+                case '\\': replacement = "\\\\"; break;
+                case '\n': replacement = "\\n"; break;
+                case '\r': replacement = "\\r"; break;
+                case '\t': replacement = "\\t"; break;
+                case '\b': replacement = "\\b"; break;
+                case '\f': replacement = "\\f"; break;
+                default: replacement = c < 0x20 || c == 0x7F ? String.format("\\u%04x", (int) c) : null; break;
+            }
+            if (replacement != null && result == null) {
+                result = new StringBuilder(value.length() + 8).append(value, 0, i);
+            }
+            if (result != null) {
+                if (replacement != null) {
+                    result.append(replacement);
+                } else {
+                    result.append(c);
+                }
+            }
+        }
+        return result == null ? value : result.toString();
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+    }
+
+    @Override
+    public int estimateBytecodeSize() {
+        switch (text) {
+            case "null": case "true": case "false": case "0": case "1": case "2": case "3": case "4": case "5": case "-1":
+                return 1;
+            default:
+                //bipush, sipush, ldc_w or getstatic
+                return 3;
+        }
+    }
+
+    @Override
+    public void forEachChild(Consumer<? super CodeElement> action) {
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        out.append(text);
+    }
+}
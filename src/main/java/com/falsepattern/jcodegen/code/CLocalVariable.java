@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * {@code [final] Type name [= initializer];}
+ */
+@RequiredArgsConstructor
+public final class CLocalVariable extends CodeNode implements CStatement {
+    @NonNull
+    public final CType type;
+    @NonNull
+    public final String name;
+    /**
+     * Null for a declaration without an initializer.
+     */
+    public final CExpression initializer;
+    public final boolean isFinal;
+
+    public CVariable ref() {
+        return new CVariable(name);
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        action.accept(type);
+        if (initializer != null) initializer.forEachType(action);
+    }
+
+    @Override
+    public int estimateBytecodeSize() {
+        return initializer == null ? 0 : initializer.estimateBytecodeSize() + 2;
+    }
+
+    @Override
+    public void forEachChild(Consumer<? super CodeElement> action) {
+        if (initializer != null) action.accept(initializer);
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        renderDeclaration(out, names);
+        out.append(';');
+    }
+
+    void renderDeclaration(Appendable out, TypeNameResolver names) throws IOException {
+        if (isFinal) out.append("final ");
+        type.renderTo(out, names);
+        out.append(' ').append(name);
+        if (initializer != null) {
+            out.append(" = ");
+            initializer.renderTo(out, names);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import lombok.NonNull;
+import lombok.val;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@code target.name(args)}, {@code Owner.name(args)} for static methods, or an unqualified {@code name(args)}.
+ */
+public final class CMethodCall extends CodeNode implements CExpression {
+    /**
+     * Null for static and unqualified calls.
+     */
+    public final CExpression target;
+    /**
+     * Null for instance and unqualified calls.
+     */
+    public final CType owner;
+    public final String name;
+    public final List<CExpression> arguments;
+
+    private CMethodCall(CExpression target, CType owner, @NonNull String name, CExpression[] arguments) {
+        this.target = target;
+        this.owner = owner;
+        this.name = name;
+        this.arguments = Collections.unmodifiableList(Arrays.asList(arguments.clone()));
+    }
+
+    public static CMethodCall of(@NonNull CExpression target, String name, CExpression... arguments) {
+        return new CMethodCall(target, null, name, arguments);
+    }
+
+    public static CMethodCall ofStatic(@NonNull CType owner, String name, CExpression... arguments) {
+        return new CMethodCall(null, owner, name, arguments);
+    }
+
+    public static CMethodCall unqualified(String name, CExpression... arguments) {
+        return new CMethodCall(null, null, name, arguments);
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        if (target != null) target.forEachType(action);
+        if (owner != null) action.accept(owner);
+        forEachType(arguments, action);
+    }
+
+    @Override
+    public int estimateBytecodeSize() {
+        //Unqualified calls may load this. invokeinterface takes 5 bytes, plus 3 for a checkcast of a generic result or
+        //a boxing conversion.
+        val receiver = target != null ? target.estimateBytecodeSize() : owner == null ? 1 : 0;
+        return receiver + estimateBytecodeSize(arguments) + 8;
+    }
+
+    @Override
+    public void forEachChild(Consumer<? super CodeElement> action) {
+        if (target != null) action.accept(target);
+        arguments.forEach(action);
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        if (target != null) {
+            renderOperand(out, target, names);
+            out.append('.');
+        } else if (owner != null) {
+            out.append(names.nameOf(owner)).append('.');
+        }
+        out.append(name);
+        renderArguments(out, arguments, names);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@code new Component[length]}, or {@code new Component[]{elements}} when built with an initializer.
+ */
+public final class CNewArray extends CodeNode implements CExpression {
+    /**
+     * The array type itself, not its component type.
+     */
+    public final CType type;
+    /**
+     * Null when an initializer is used.
+     */
+    public final CExpression length;
+    /**
+     * Null when a length is used.
+     */
+    public final List<CExpression> elements;
+
+    private CNewArray(@NonNull CType type, CExpression length, List<CExpression> elements) {
+        if (!type.isArray()) {
+            throw new IllegalArgumentException("Not an array type: " + type.getName());
+        }
+        this.type = type;
+        this.length = length;
+        this.elements = elements;
+    }
+
+    public static CNewArray ofLength(CType arrayType, @NonNull CExpression length) {
+        return new CNewArray(arrayType, length, null);
+    }
+
+    public static CNewArray of(CType arrayType, CExpression... elements) {
+        return new CNewArray(arrayType, null, Collections.unmodifiableList(Arrays.asList(elements.clone())));
+    }
+
+    @Override
+    public boolean isCompound() {
+        return true;
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        action.accept(type);
+        if (length != null) {
+            length.forEachType(action);
+        } else {
+            forEachType(elements, action);
+        }
+    }
+
+    @Override
+    public int estimateBytecodeSize() {
+        if (length != null) {
+            //newarray, anewarray or multianewarray
+            return length.estimateBytecodeSize() + 4;
+        }
+        //Every element is stored with dup, the index, the value and a store instruction
+        return 7 + 5 * elements.size() + estimateBytecodeSize(elements);
+    }
+
+    @Override
+    public void forEachChild(Consumer<? super CodeElement> action) {
+        if (length != null) {
+            action.accept(length);
+        } else {
+            elements.forEach(action);
+        }
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        String name = names.nameOf(type);
+        out.append("new ");
+        if (length != null) {
+            //Only the outermost dimension gets a length, e.g. new int[n][]
+            int bracket = name.length() - 2 * type.arrayDimensions();
+            out.append(name, 0, bracket).append('[');
+            length.renderTo(out, names);
+            out.append(']').append(name, bracket + 2, name.length());
+        } else {
+            out.append(name).append('{');
+            for (int i = 0; i < elements.size(); i++) {
+                if (i > 0) out.append(", ");
+                elements.get(i).renderTo(out, names);
+            }
+            out.append('}');
+        }
+    }
+}
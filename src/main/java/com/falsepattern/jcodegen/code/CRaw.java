@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import lombok.NonNull;
+import lombok.val;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Verbatim code, usable as a statement or as an expression. The types it mentions have to be listed to be imported,
+ * and always render as written.
+ */
+public final class CRaw extends CodeNode implements CStatement, CExpression {
+    private static final int BYTES_PER_CHARACTER = 4;
+
+    public final String code;
+    public final List<CType> types;
+
+    public CRaw(@NonNull String code, CType... types) {
+        this.code = code;
+        this.types = Collections.unmodifiableList(Arrays.asList(types.clone()));
+    }
+
+    @Override
+    public boolean isCompound() {
+        return true;
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        for (val type: types) {
+            action.accept(type);
+        }
+    }
+
+    @Override
+    public int estimateBytecodeSize() {
+        //Raw code is opaque, so this is an upper bound rather than a guess. Bytecode can be denser than the source: x=y;
+        //between two fields is 4 characters but 8 bytes, and x++ on a field is 3 characters but 10 bytes. Four bytes
+        //per character covers field and local access, increments, compound assignments and calls; only autoboxing and
+        //string concatenation in very short expressions can exceed it.
+        int size = 0;
+        for (int i = 0; i < code.length(); i++) {
+            if (!Character.isWhitespace(code.charAt(i))) size++;
+        }
+        return size * BYTES_PER_CHARACTER;
+    }
+
+    @Override
+    public void forEachChild(Consumer<? super CodeElement> action) {
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        out.append(code);
+    }
+}
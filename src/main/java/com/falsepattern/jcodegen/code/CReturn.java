@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * {@code return [value];}
+ */
+@RequiredArgsConstructor
+public final class CReturn extends CodeNode implements CStatement {
+    public static final CReturn VOID = new CReturn(null);
+
+    /**
+     * Null in void methods.
+     */
+    public final CExpression value;
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        if (value != null) value.forEachType(action);
+    }
+
+    @Override
+    public int estimateBytecodeSize() {
+        return value == null ? 1 : value.estimateBytecodeSize() + 1;
+    }
+
+    @Override
+    public void forEachChild(Consumer<? super CodeElement> action) {
+        if (value != null) action.accept(value);
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        if (value == null) {
+            out.append("return;");
+        } else {
+            out.append("return ");
+            value.renderTo(out, names);
+            out.append(';');
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import com.falsepattern.jcodegen.util.IndentingAppendable;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.Singular;
+import lombok.val;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@code switch (selector) {case ...: ...}}. Cases fall through unless their statements end with a jump, exactly as in
+ * Java source.
+ */
+@Builder
+@RequiredArgsConstructor
+public final class CSwitch extends CodeNode implements CStatement {
+    @NonNull
+    public final CExpression selector;
+    @Singular("addCase")
+    public final List<Case> cases;
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        selector.forEachType(action);
+        forEachType(cases, action);
+    }
+
+    @Override
+    public int estimateBytecodeSize() {
+        //Opcode, padding, default offset and length. String switches add a hashCode() switch in front, enum switches an
+        //ordinal() lookup.
+        int size = selector.estimateBytecodeSize() + 12;
+        for (val c: cases) {
+            size += c.estimateBytecodeSize();
+            if (!c.labels.isEmpty() && c.labels.get(0) instanceof CVariable) size += 12;
+        }
+        return size;
+    }
+
+    @Override
+    public void forEachChild(Consumer<? super CodeElement> action) {
+        action.accept(selector);
+        cases.forEach(action);
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        val w = IndentingAppendable.of(out);
+        w.append("switch (");
+        selector.renderTo(w, names);
+        w.append(") {\n");
+        w.indent(4);
+        for (val c: cases) {
+            c.renderTo(w, names);
+        }
+        w.outdent(4);
+        w.append('}');
+    }
+
+    /**
+     * A group of labels sharing the same statements. An empty label list is the default case.
+     */
+    @RequiredArgsConstructor
+    public static final class Case extends CodeNode {
+        @NonNull
+        public final List<CExpression> labels;
+        @NonNull
+        public final CBlock body;
+
+        @Override
+        public void forEachType(Consumer<? super CType> action) {
+            forEachType(labels, action);
+            body.forEachType(action);
+        }
+
+        @Override
+        public int estimateBytecodeSize() {
+            //A lookupswitch entry per label, String labels also need an equals() check and a second switch entry
+            int size = body.estimateBytecodeSize();
+            for (val label: labels) {
+                size += 8;
+                if (label instanceof CLiteral && ((CLiteral) label).text.startsWith("\"")) size += 28;
+            }
+            return size;
+        }
+
+        /**
+         * Visits the labels and the body block.
+         */
+        @Override
+        public void forEachChild(Consumer<? super CodeElement> action) {
+            labels.forEach(action);
+            action.accept(body);
+        }
+
+        @Override
+        public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+            val w = IndentingAppendable.of(out);
+            if (labels.isEmpty()) {
+                w.append("default:\n");
+            }
+            for (val label: labels) {
+                w.append("case ");
+                label.renderTo(w, names);
+                w.append(":\n");
+            }
+            w.indent(4);
+            body.renderStatements(w, names);
+            w.outdent(4);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.Renderable;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * A prefix ({@code !x}, {@code -x}, {@code ++x}) or postfix ({@code x++}) operator.
+ */
+@RequiredArgsConstructor
+public final class CUnary extends CodeNode implements CExpression {
+    @NonNull
+    public final String operator;
+    @NonNull
+    public final CExpression operand;
+    public final boolean postfix;
+
+    @Override
+    public boolean isCompound() {
+        return true;
+    }
+
+    @Override
+    public void forEachType(Consumer<? super CType> action) {
+        operand.forEachType(action);
+    }
+
+    @Override
+    public int estimateBytecodeSize() {
+        val operandSize = operand.estimateBytecodeSize();
+        switch (operator) {
+            case "++":
+            case "--":
+                //iinc for locals, a load, add and store sequence for fields and array elements
+                return operand instanceof CVariable ? 6 : 2 * operandSize + 7;
+            case "!":
+                return operandSize + 8;
+            default:
+                return operandSize + 2;
+        }
+    }
+
+    @Override
+    public void forEachChild(Consumer<? super CodeElement> action) {
+        action.accept(operand);
+    }
+
+    @Override
+    public void renderTo(Appendable out, TypeNameResolver names) throws IOException {
+        if (postfix) {
+            renderOperand(out, operand, names);
+            out.append(operator);
+            return;
+        }
+        out.append(operator);
+        val sign = operator.charAt(operator.length() - 1);
+        if ((sign == '-' || sign == '+') && !operand.isCompound()) {
+            //Compound operands are parenthesized, others like the literal -1 would otherwise merge into --1
+            val text = Renderable.render(o -> operand.renderTo(o, names));
+            if (!text.isEmpty() && text.charAt(0) == sign) out.append(' ');
+            out.append(text);
+            return;
+        }
+        renderOperand(out, operand, names);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CType;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Short factory methods for building code trees, meant to be statically imported.
+ */
+public final class Code {
+    private Code() {}
+
+    public static CBlock block(CStatement... statements) {
+        return CBlock.of(statements);
+    }
+
+    public static CRaw raw(String code, CType... types) {
+        return new CRaw(code, types);
+    }
+
+    public static CVariable var(String name) {
+        return new CVariable(name);
+    }
+
+    public static CVariable self() {
+        return CVariable.THIS;
+    }
+
+    public static CLiteral literal(int value) {
+        return CLiteral.of(value);
+    }
+
+    public static CLiteral literal(long value) {
+        return CLiteral.of(value);
+    }
+
+    public static CLiteral literal(boolean value) {
+        return CLiteral.of(value);
+    }
+
+    public static CLiteral literal(String value) {
+        return CLiteral.of(value);
+    }
+
+    public static CLiteral nullLiteral() {
+        return CLiteral.NULL;
+    }
+
+    public static CFieldAccess field(CExpression target, String name) {
+        return CFieldAccess.of(target, name);
+    }
+
+    public static CFieldAccess staticField(CType owner, String name) {
+        return CFieldAccess.ofStatic(owner, name);
+    }
+
+    public static CMethodCall call(CExpression target, String name, CExpression... arguments) {
+        return CMethodCall.of(target, name, arguments);
+    }
+
+    public static CMethodCall callStatic(CType owner, String name, CExpression... arguments) {
+        return CMethodCall.ofStatic(owner, name, arguments);
+    }
+
+    public static CMethodCall call(String name, CExpression... arguments) {
+        return CMethodCall.unqualified(name, arguments);
+    }
+
+    public static CNew newInstance(CType type, CExpression... arguments) {
+        return new CNew(type, arguments);
+    }
+
+    public static CCast cast(CType type, CExpression operand) {
+        return new CCast(type, operand);
+    }
+
+    public static CBinary op(CExpression left, String operator, CExpression right) {
+        return new CBinary(left, operator, right);
+    }
+
+    public static CBinary instanceOf(CExpression value, CType type) {
+        return new CBinary(value, "instanceof", new CTypeLiteral(type));
+    }
+
+    public static CUnary not(CExpression operand) {
+        return new CUnary("!", operand, false);
+    }
+
+    public static CArrayAccess index(CExpression array, CExpression index) {
+        return new CArrayAccess(array, index);
+    }
+
+    public static CExpressionStatement assign(CExpression target, CExpression value) {
+        return new CExpressionStatement(new CAssign(target, "=", value));
+    }
+
+    public static CExpressionStatement exec(CExpression expression) {
+        return new CExpressionStatement(expression);
+    }
+
+    public static CLocalVariable local(CType type, String name, CExpression initializer) {
+        return new CLocalVariable(type, name, initializer, false);
+    }
+
+    public static CLocalVariable finalLocal(CType type, String name, CExpression initializer) {
+        return new CLocalVariable(type, name, initializer, true);
+    }
+
+    public static CReturn ret() {
+        return CReturn.VOID;
+    }
+
+    public static CReturn ret(CExpression value) {
+        return new CReturn(value);
+    }
+
+    public static CThrow throwNew(CType exception, CExpression... arguments) {
+        return new CThrow(new CNew(exception, arguments));
+    }
+
+    public static CIf ifThen(CExpression condition, CStatement... then) {
+        return CIf.of(condition, CBlock.of(then));
+    }
+
+    public static CWhile whileLoop(CExpression condition, CStatement... body) {
+        return new CWhile(condition, CBlock.of(body), false);
+    }
+
+    public static CForEach forEach(CType type, String name, CExpression iterable, CStatement... body) {
+        return new CForEach(type, name, iterable, CBlock.of(body));
+    }
+
+    public static CSwitch.Case caseOf(CExpression label, CStatement... body) {
+        return new CSwitch.Case(Collections.singletonList(label), CBlock.of(body));
+    }
+
+    public static CSwitch.Case caseOf(CExpression[] labels, CStatement... body) {
+        return new CSwitch.Case(Collections.unmodifiableList(Arrays.asList(labels.clone())), CBlock.of(body));
+    }
+
+    public static CSwitch.Case defaultCase(CStatement... body) {
+        return new CSwitch.Case(Collections.emptyList(), CBlock.of(body));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.code;
+
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.Renderable;
+import com.falsepattern.jcodegen.TypeNameResolver;
+import com.falsepattern.jcodegen.util.ArraySet;
+import lombok.val;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Base of the statement and expression trees. Nodes are immutable, report every type they mention, and render straight
+ * to the output without building intermediate strings.
+ */
+public abstract class CodeNode implements CodeElement {
+    /**
+     * Computed on every call, so that large trees don't keep a set per node alive.
+     */
+    @Override
+    public Set<CType> getTypes() {
+        val result = new ArrayList<CType>();
+        forEachType(result::add);
+        return ArraySet.copyOf(result);
+    }
+
+    @Override
+    public abstract void forEachType(Consumer<? super CType> action);
+
+    @Override
+    public abstract int estimateBytecodeSize();
+
+    @Override
+    public abstract void forEachChild(Consumer<? super CodeElement> action);
+
+    @Override
+    public void renderTo(Appendable out) throws IOException {
+        renderTo(out, TypeNameResolver.SIMPLE);
+    }
+
+    @Override
+    public abstract void renderTo(Appendable out, TypeNameResolver names) throws IOException;
+
+    @Override
+    public String toString() {
+        return Renderable.render(this);
+    }
+
+    static int estimateBytecodeSize(List<? extends CodeElement> elements) {
+        int size = 0;
+        for (val element: elements) {
+            size += element.estimateBytecodeSize();
+        }
+        return size;
+    }
+
+    static void forEachType(List<? extends CodeElement> nodes, Consumer<? super CType> action) {
+        for (val node: nodes) {
+            node.forEachType(action);
+        }
+    }
+
+    static void renderArguments(Appendable out, List<CExpression> arguments, TypeNameResolver names) throws IOException {
+        out.append('(');
+        for (int i = 0; i < arguments.size(); i++) {
+            if (i > 0) out.append(", ");
+            arguments.get(i).renderTo(out, names);
+        }
+        out.append(')');
+    }
+
+    /**
+     * Renders an expression used as the operand of a member access, cast or operator, parenthesizing it if needed.
+     */
+    static void renderOperand(Appendable out, CExpression operand, TypeNameResolver names) throws IOException {
+        if (operand.isCompound()) {
+            out.append('(');
+            operand.renderTo(out, names);
+            out.append(')');
+        } else {
+            operand.renderTo(out, names);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.compile;
+
+import com.falsepattern.jcodegen.CClass;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.val;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles rendered classes with the system java compiler without touching the file system. Every call to
+ * {@link #compile(Collection)} runs a single compiler invocation and defines the results in a fresh
+ * {@link MemoryClassLoader}.
+ */
+@Builder
+public class InMemoryCompiler {
+    @Builder.Default
+    @NonNull
+    private final ClassLoader parent = InMemoryCompiler.class.getClassLoader();
+    @Singular
+    private final List<String> options;
+
+    public Class<?> compile(CClass cClass) {
+        return compile(Collections.singletonList(cClass)).get(binaryName(cClass));
+    }
+
+    public Map<String, Class<?>> compile(Collection<CClass> classes) {
+        val loader = new MemoryClassLoader(parent, compileToBytecode(classes));
+        val result = new LinkedHashMap<String, Class<?>>();
+        for (val cClass: classes) {
+            val name = binaryName(cClass);
+            try {
+                result.put(name, loader.loadClass(name));
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Compiler did not produce " + name, e);
+            }
+        }
+        return result;
+    }
+
+    public Map<String, byte[]> compileToBytecode(Collection<CClass> classes) {
+        return compileToBytecode(classes, Collections.emptyMap());
+    }
+
+    /**
+     * @param dependencies Class files, keyed by binary name, that the compiled sources may reference. They are only
+     *                     placed on the class path and are not part of the result.
+     */
+    public Map<String, byte[]> compileToBytecode(Collection<CClass> classes, Map<String, byte[]> dependencies) {
+        val compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No system java compiler available, in-memory compilation requires a JDK");
+        }
+        val sources = new ArrayList<JavaFileObject>(classes.size());
+        for (val cClass: classes) {
+            val source = new StringBuilder();
+            try {
+                cClass.renderTo(source);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            sources.add(new MemoryFileManager.SourceFile(binaryName(cClass), source));
+        }
+        val diagnostics = new DiagnosticCollector<JavaFileObject>();
+        try (val fileManager = new MemoryFileManager(compiler.getStandardFileManager(diagnostics, null, null), dependencies)) {
+            val success = compiler.getTask(null, fileManager, diagnostics, options, null, sources).call();
+            if (!success) {
+                val messages = new ArrayList<String>();
+                diagnostics.getDiagnostics().forEach((diagnostic) -> messages.add(diagnostic.toString()));
+                throw new CompilationException(messages);
+            }
+            return fileManager.getClassFiles();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String binaryName(CClass cClass) {
+        val pkg = cClass.getPkg();
+        return pkg == null || pkg.isEmpty() ? cClass.getName() : pkg + "." + cClass.getName();
+    }
+}
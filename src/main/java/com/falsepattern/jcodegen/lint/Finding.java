@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.lint;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class Finding {
+    public enum Rule {
+        /**
+         * Primitive values converted to or from their wrapper types.
+         */
+        BOXING,
+        /**
+         * Methods with more implementations in a generated hierarchy than an inline cache can hold.
+         */
+        MEGAMORPHIC_DISPATCH,
+        /**
+         * Fields and leaf classes that could be declared final.
+         */
+        MISSING_FINAL,
+        /**
+         * Methods over the inlining or JIT compilation size limits.
+         */
+        METHOD_SIZE
+    }
+    private final Rule rule;
+    private final Severity severity;
+    /**
+     * Qualified name of the class.
+     */
+    private final String className;
+    /**
+     * The field or method signature, or null for findings about the class itself.
+     */
+    private final String member;
+    private final String message;
+
+    @Override
+    public String toString() {
+        return String.format("%s [%s] %s%s: %s", severity, rule, className, member == null ? "" : "#" + member, message);
+    }
+}
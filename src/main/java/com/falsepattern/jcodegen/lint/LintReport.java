@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.lint;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class LintReport {
+    @Getter
+    private final List<Finding> findings;
+
+    public int count(Severity severity) {
+        int count = 0;
+        for (Finding finding: findings) {
+            if (finding.getSeverity() == severity) count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return The findings of at least the given severity.
+     */
+    public List<Finding> atLeast(Severity severity) {
+        val result = new ArrayList<Finding>();
+        for (Finding finding: findings) {
+            if (finding.getSeverity().compareTo(severity) >= 0) result.add(finding);
+        }
+        return result;
+    }
+
+    /**
+     * Meant for build scripts: fails with every finding of at least the given severity, if there is any.
+     *
+     * @throws LintException If a finding of at least the given severity exists.
+     */
+    public void failOn(Severity severity) {
+        val failed = atLeast(severity);
+        if (!failed.isEmpty()) {
+            throw new LintException(failed);
+        }
+    }
+
+    @Override
+    public String toString() {
+        val result = new StringBuilder(String.format("%d findings (%d errors, %d warnings, %d infos)%n",
+                                                     findings.size(),
+                                                     count(Severity.ERROR),
+                                                     count(Severity.WARNING),
+                                                     count(Severity.INFO)));
+        for (Finding finding: findings) {
+            result.append(finding).append(System.lineSeparator());
+        }
+        return result.toString();
+    }
+}
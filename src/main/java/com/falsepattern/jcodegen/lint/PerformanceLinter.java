@@ -0,0 +1,682 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.lint;
+
+import com.falsepattern.jcodegen.AccessSpecifier;
+import com.falsepattern.jcodegen.CClass;
+import com.falsepattern.jcodegen.CConstructor;
+import com.falsepattern.jcodegen.CField;
+import com.falsepattern.jcodegen.CImmutableList;
+import com.falsepattern.jcodegen.CMethod;
+import com.falsepattern.jcodegen.CParameter;
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.Renderable;
+import com.falsepattern.jcodegen.code.CArrayAccess;
+import com.falsepattern.jcodegen.code.CAssign;
+import com.falsepattern.jcodegen.code.CBinary;
+import com.falsepattern.jcodegen.code.CBlock;
+import com.falsepattern.jcodegen.code.CCast;
+import com.falsepattern.jcodegen.code.CExpression;
+import com.falsepattern.jcodegen.code.CExpressionStatement;
+import com.falsepattern.jcodegen.code.CFieldAccess;
+import com.falsepattern.jcodegen.code.CForEach;
+import com.falsepattern.jcodegen.code.CLiteral;
+import com.falsepattern.jcodegen.code.CLocalVariable;
+import com.falsepattern.jcodegen.code.CMethodCall;
+import com.falsepattern.jcodegen.code.CNew;
+import com.falsepattern.jcodegen.code.CNewArray;
+import com.falsepattern.jcodegen.code.CRaw;
+import com.falsepattern.jcodegen.code.CReturn;
+import com.falsepattern.jcodegen.code.CUnary;
+import com.falsepattern.jcodegen.code.CVariable;
+import com.falsepattern.jcodegen.code.CodeElement;
+import com.falsepattern.jcodegen.split.MethodSplitter;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.val;
+
+import java.lang.reflect.Executable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Generation-time analysis of a set of {@link CClass}es for patterns that hurt JIT compiled code:
+ * <ul>
+ *     <li>{@link Finding.Rule#BOXING}: primitive values passed, returned or assigned where a reference type is expected
+ *     (or the other way around) in structured bodies, and fields, parameters and collections declared over wrapper
+ *     types.</li>
+ *     <li>{@link Finding.Rule#MEGAMORPHIC_DISPATCH}: methods implemented by more classes of a generated hierarchy than a
+ *     bimorphic inline cache can handle, as produced by {@link CClass#superConstructors}.</li>
+ *     <li>{@link Finding.Rule#MISSING_FINAL}: fields that are only written on initialization, and leaf classes of
+ *     generated hierarchies.</li>
+ *     <li>{@link Finding.Rule#METHOD_SIZE}: methods over the hot call site inlining limit, or over the limit above which
+ *     HotSpot does not compile them at all.</li>
+ * </ul>
+ * Types of expressions are inferred from the model and, for library types, through reflection with the configured class
+ * loader. Code strings are only checked for field writes and method size.
+ */
+@Builder
+public class PerformanceLinter {
+    /**
+     * HotSpot's {@code -XX:FreqInlineSize} default on x86.
+     */
+    public static final int FREQ_INLINE_SIZE = 325;
+    /**
+     * The number of receiver types a HotSpot call site can still inline.
+     */
+    public static final int BIMORPHIC_LIMIT = 2;
+    private static final Map<CType, CType> UNBOXED = new HashMap<>();
+    private static final Map<CType, Integer> NUMERIC_RANK = new HashMap<>();
+    private static final CType STRING = CType.of(String.class);
+
+    static {
+        UNBOXED.put(CType.of(Boolean.class), CType.BOOLEAN);
+        UNBOXED.put(CType.of(Byte.class), CType.BYTE);
+        UNBOXED.put(CType.of(Character.class), CType.CHAR);
+        UNBOXED.put(CType.of(Short.class), CType.SHORT);
+        UNBOXED.put(CType.of(Integer.class), CType.INT);
+        UNBOXED.put(CType.of(Long.class), CType.LONG);
+        UNBOXED.put(CType.of(Float.class), CType.FLOAT);
+        UNBOXED.put(CType.of(Double.class), CType.DOUBLE);
+        NUMERIC_RANK.put(CType.BYTE, 1);
+        NUMERIC_RANK.put(CType.SHORT, 1);
+        NUMERIC_RANK.put(CType.CHAR, 1);
+        NUMERIC_RANK.put(CType.INT, 1);
+        NUMERIC_RANK.put(CType.LONG, 2);
+        NUMERIC_RANK.put(CType.FLOAT, 3);
+        NUMERIC_RANK.put(CType.DOUBLE, 4);
+    }
+
+    /**
+     * Used to look up the methods and constructors of library types.
+     */
+    @Builder.Default
+    @NonNull
+    private final ClassLoader classLoader = PerformanceLinter.class.getClassLoader();
+    @Builder.Default
+    private final int freqInlineSize = FREQ_INLINE_SIZE;
+    @Builder.Default
+    private final int hugeMethodLimit = MethodSplitter.HUGE_METHOD_LIMIT;
+    @Singular
+    private final Set<Finding.Rule> disabledRules;
+
+    public LintReport lint(CClass cClass) {
+        return lint(Collections.singletonList(cClass));
+    }
+
+    /**
+     * Classes are analyzed together, so that hierarchies and field writes across them are taken into account.
+     */
+    public LintReport lint(Collection<CClass> classes) {
+        return new Run(classes).run();
+    }
+
+    private final class Run {
+        private final Collection<CClass> classes;
+        private final Map<CType, CClass> byType = new HashMap<>();
+        private final Map<CType, List<CClass>> subclasses = new HashMap<>();
+        private final List<Finding> findings = new ArrayList<>();
+        private CClass current;
+        private String member;
+
+        Run(Collection<CClass> classes) {
+            this.classes = classes;
+            for (val cClass: classes) {
+                byType.put(cClass.getCType(), cClass);
+            }
+            for (val cClass: classes) {
+                if (byType.containsKey(cClass.getSuperclass())) {
+                    subclasses.computeIfAbsent(cClass.getSuperclass(), (key) -> new ArrayList<>()).add(cClass);
+                }
+            }
+        }
+
+        LintReport run() {
+            for (val cClass: classes) {
+                current = cClass;
+                member = null;
+                if (enabled(Finding.Rule.MEGAMORPHIC_DISPATCH)) checkHierarchy();
+                if (enabled(Finding.Rule.MISSING_FINAL)) checkLeafClass();
+                for (val field: cClass.getFields()) {
+                    member = field.name;
+                    if (enabled(Finding.Rule.BOXING)) checkDeclaredType(field.type, "field");
+                    if (enabled(Finding.Rule.MISSING_FINAL)) checkFinalField(field);
+                }
+                for (val constructor: cClass.getConstructors()) {
+                    member = signature("<init>", constructor.paramList);
+                    checkParameters(constructor.paramList);
+                    if (enabled(Finding.Rule.METHOD_SIZE)) checkSize(estimateBytecodeSize(constructor), constructor.body == null);
+                    if (constructor.body != null && enabled(Finding.Rule.BOXING)) checkBody(constructor.body, CType.VOID, constructor.paramList);
+                }
+                for (val method: cClass.getMethods()) {
+                    member = signature(method.name, method.paramList);
+                    checkParameters(method.paramList);
+                    if (enabled(Finding.Rule.BOXING)) checkDeclaredType(method.returnType, "return type");
+                    if (enabled(Finding.Rule.METHOD_SIZE)) checkSize(MethodSplitter.estimateBytecodeSize(method), method.body == null);
+                    if (method.body != null && enabled(Finding.Rule.BOXING)) checkBody(method.body, method.returnType, method.paramList);
+                }
+            }
+            return new LintReport(findings);
+        }
+
+        private void report(Finding.Rule rule, Severity severity, String message) {
+            findings.add(new Finding(rule, severity, current.getCType().getName(), member, message));
+        }
+
+        private void checkHierarchy() {
+            //Only reported at the topmost generated declaration
+            if (byType.containsKey(current.getSuperclass())) {
+                for (val method: current.getMethods()) {
+                    if (declaredAbove(current, method)) continue;
+                    checkDispatch(method);
+                }
+            } else {
+                current.getMethods().forEach(this::checkDispatch);
+            }
+        }
+
+        private boolean declaredAbove(CClass cClass, CMethod method) {
+            for (CClass parent = byType.get(cClass.getSuperclass()); parent != null; parent = byType.get(parent.getSuperclass())) {
+                if (parent.getMethods().contains(method)) return true;
+            }
+            return false;
+        }
+
+        private void checkDispatch(CMethod method) {
+            val access = method.accessSpecifier;
+            if (access.isStatic || access.isFinal || access.visibility == AccessSpecifier.Visibility.PRIVATE) return;
+            val implementations = new ArrayList<String>();
+            collectImplementations(current, method, implementations);
+            if (implementations.size() > BIMORPHIC_LIMIT) {
+                member = signature(method.name, method.paramList);
+                report(Finding.Rule.MEGAMORPHIC_DISPATCH, Severity.WARNING, String.format(
+                        "%d implementations (%s): call sites through %s that see more than %d of them can't inline the call",
+                        implementations.size(), String.join(", ", implementations), current.getName(), BIMORPHIC_LIMIT));
+                member = null;
+            }
+        }
+
+        private void collectImplementations(CClass cClass, CMethod method, List<String> result) {
+            val index = cClass.getMethods().indexOf(method);
+            if (index >= 0 && !cClass.getMethods().get(index).accessSpecifier.isAbstract) {
+                result.add(cClass.getName());
+            }
+            for (val subclass: subclasses.getOrDefault(cClass.getCType(), Collections.emptyList())) {
+                collectImplementations(subclass, method, result);
+            }
+        }
+
+        private void checkLeafClass() {
+            val access = current.getAccessSpecifier();
+            if (access.isFinal || access.isAbstract || subclasses.containsKey(current.getCType())) return;
+            if (!byType.containsKey(current.getSuperclass())) return;
+            report(Finding.Rule.MISSING_FINAL, Severity.INFO, "leaf of a generated hierarchy, declaring it final lets the JIT bind its calls without class hierarchy analysis");
+        }
+
+        private void checkFinalField(CField field) {
+            val access = field.accessSpecifier;
+            if (access.isFinal || access.isVolatile) return;
+            for (val cClass: classes) {
+                //Only this class can write private fields
+                if (access.visibility == AccessSpecifier.Visibility.PRIVATE && cClass != current) continue;
+                for (val method: cClass.getMethods()) {
+                    if (writes(method.body, method.code, field.name)) return;
+                }
+                if (cClass != current) {
+                    for (val constructor: cClass.getConstructors()) {
+                        if (writes(constructor.body, constructor.code, field.name)) return;
+                    }
+                }
+            }
+            if (access.isStatic) {
+                //Constructors can't assign static finals
+                for (val constructor: current.getConstructors()) {
+                    if (writes(constructor.body, constructor.code, field.name)) return;
+                }
+                if (field.initializer.isEmpty()) return;
+                report(Finding.Rule.MISSING_FINAL, Severity.WARNING, "only assigned by its initializer, static finals are constants to the JIT");
+                return;
+            }
+            val constructors = current.getConstructors();
+            if (field.initializer.isEmpty()) {
+                //Has to be assigned exactly once on every path, which is only checked for a single top-level assignment
+                if (constructors.isEmpty()) return;
+                for (val constructor: constructors) {
+                    if (countWrites(constructor.body, constructor.code, field.name) != 1 || !assignsAtTopLevel(constructor, field.name)) return;
+                }
+            } else {
+                for (val constructor: constructors) {
+                    if (writes(constructor.body, constructor.code, field.name)) return;
+                }
+            }
+            report(Finding.Rule.MISSING_FINAL, Severity.INFO, "never written after construction, could be final");
+        }
+
+        private boolean assignsAtTopLevel(CConstructor constructor, String field) {
+            if (constructor.body == null) {
+                return assignmentPattern(field).matcher(constructor.code).find();
+            }
+            for (val statement: constructor.body.statements.getParameters()) {
+                if (statement instanceof CExpressionStatement && ((CExpressionStatement) statement).expression instanceof CAssign) {
+                    val assign = (CAssign) ((CExpressionStatement) statement).expression;
+                    if (assign.operator.equals("=") && isFieldReference(assign.target, field)) return true;
+                }
+            }
+            return false;
+        }
+
+        private int estimateBytecodeSize(CConstructor constructor) {
+            //The implicit super() call
+            val size = constructor.body != null ? constructor.body.estimateBytecodeSize() : new CRaw(constructor.code).estimateBytecodeSize();
+            return size + 5;
+        }
+
+        private void checkSize(int size, boolean opaque) {
+            val basis = opaque ? " (estimated from the code length)" : "";
+            if (size > hugeMethodLimit) {
+                report(Finding.Rule.METHOD_SIZE, Severity.ERROR, String.format(
+                        "about %d bytes of bytecode%s, over the %d byte limit above which HotSpot does not JIT compile it; see MethodSplitter",
+                        size, basis, hugeMethodLimit));
+            } else if (size > freqInlineSize) {
+                report(Finding.Rule.METHOD_SIZE, Severity.WARNING, String.format(
+                        "about %d bytes of bytecode%s, over the %d byte limit for inlining at hot call sites",
+                        size, basis, freqInlineSize));
+            }
+        }
+
+        private void checkParameters(CImmutableList<CParameter> params) {
+            if (!enabled(Finding.Rule.BOXING)) return;
+            for (val param: params.getParameters()) {
+                checkDeclaredType(param.getType(), "parameter " + param.getName());
+            }
+        }
+
+        private void checkDeclaredType(CType type, String what) {
+            if (UNBOXED.containsKey(type)) {
+                report(Finding.Rule.BOXING, Severity.INFO, String.format("%s is declared as %s, %s avoids boxing", what, type.getSimpleName(), UNBOXED.get(type).getName()));
+                return;
+            }
+            for (val argument: type.getTypeArguments()) {
+                val bound = argument.isWildcard() && argument.getBound() != null ? argument.getBound() : argument;
+                if (UNBOXED.containsKey(bound)) {
+                    report(Finding.Rule.BOXING, Severity.INFO, String.format(
+                            "%s is a %s, a primitive specialization from CollectionTemplates avoids boxing every element",
+                            what, type.getSimpleName()));
+                    return;
+                }
+            }
+        }
+
+        private void checkBody(CBlock body, CType returnType, CImmutableList<CParameter> params) {
+            val scope = new HashMap<String, CType>();
+            for (val param: params.getParameters()) {
+                scope.put(param.getName(), param.getType());
+            }
+            new BodyChecker(scope, returnType).visit(body);
+        }
+
+        /**
+         * Walks a body with a flat scope of the locals declared so far.
+         */
+        private final class BodyChecker {
+            private final Map<String, CType> scope;
+            private final CType returnType;
+
+            BodyChecker(Map<String, CType> scope, CType returnType) {
+                this.scope = scope;
+                this.returnType = returnType;
+            }
+
+            void visit(CodeElement element) {
+                if (element instanceof CLocalVariable) {
+                    val local = (CLocalVariable) element;
+                    scope.put(local.name, local.type);
+                    if (local.initializer != null) checkConversion(local.type, local.initializer, "initializer of " + local.name);
+                } else if (element instanceof CForEach) {
+                    val loop = (CForEach) element;
+                    scope.put(loop.name, loop.type);
+                    val iterable = typeOf(loop.iterable);
+                    if (iterable != null && !iterable.isArray() && loop.type.isPrimitive()) {
+                        report(Finding.Rule.BOXING, Severity.WARNING, "unboxes every element of " + iterable.getSimpleName() + " into " + loop.name);
+                    }
+                } else if (element instanceof CReturn) {
+                    val value = ((CReturn) element).value;
+                    if (value != null) checkConversion(returnType, value, "return value");
+                } else if (element instanceof CAssign) {
+                    val assign = (CAssign) element;
+                    if (assign.operator.equals("=")) {
+                        val target = typeOf(assign.target);
+                        if (target != null) checkConversion(target, assign.value, "assignment to " + Renderable.render(assign.target));
+                    }
+                } else if (element instanceof CMethodCall) {
+                    checkCall((CMethodCall) element);
+                } else if (element instanceof CNew) {
+                    checkNew((CNew) element);
+                }
+                element.forEachChild(this::visit);
+            }
+
+            private void checkCall(CMethodCall call) {
+                val owner = call.target == null ? (call.owner == null ? current.getCType() : call.owner) : typeOf(call.target);
+                if (owner == null) return;
+                val generated = byType.get(owner.erasure());
+                if (generated != null) {
+                    val candidates = new ArrayList<List<CType>>();
+                    for (val method: generated.getMethods()) {
+                        if (method.name.equals(call.name) && method.paramList.getParameters().size() == call.arguments.size()) {
+                            candidates.add(parameterTypes(method.paramList));
+                        }
+                    }
+                    checkArguments(candidates, call.arguments, call.name);
+                    return;
+                }
+                val clazz = owner.tryGetClass(classLoader);
+                if (!clazz.isPresent()) return;
+                val candidates = new ArrayList<Executable>();
+                for (val method: clazz.get().getMethods()) {
+                    if (method.getName().equals(call.name)) candidates.add(method);
+                }
+                checkArguments(reflectedParameterTypes(candidates, call.arguments.size()), call.arguments, call.name);
+            }
+
+            private void checkNew(CNew creation) {
+                val generated = byType.get(creation.type.erasure());
+                if (generated != null) {
+                    val candidates = new ArrayList<List<CType>>();
+                    for (val constructor: generated.getConstructors()) {
+                        if (constructor.paramList.getParameters().size() == creation.arguments.size()) {
+                            candidates.add(parameterTypes(constructor.paramList));
+                        }
+                    }
+                    checkArguments(candidates, creation.arguments, "new " + generated.getName());
+                    return;
+                }
+                val clazz = creation.type.tryGetClass(classLoader);
+                if (!clazz.isPresent()) return;
+                val candidates = new ArrayList<Executable>();
+                Collections.addAll(candidates, clazz.get().getConstructors());
+                checkArguments(reflectedParameterTypes(candidates, creation.arguments.size()), creation.arguments, "new " + creation.type.getSimpleName());
+            }
+
+            /**
+             * Reports an argument if every overload with a matching arity converts it.
+             */
+            private void checkArguments(List<List<CType>> candidates, List<CExpression> arguments, String callee) {
+                if (candidates.isEmpty()) return;
+                for (int i = 0; i < arguments.size(); i++) {
+                    val argument = typeOf(arguments.get(i));
+                    if (argument == null) continue;
+                    CType converted = null;
+                    boolean always = true;
+                    for (val candidate: candidates) {
+                        val parameter = candidate.get(i);
+                        if (converts(argument, parameter)) {
+                            converted = parameter;
+                        } else {
+                            always = false;
+                            break;
+                        }
+                    }
+                    if (always) {
+                        report(Finding.Rule.BOXING, Severity.WARNING, String.format("%s %s to %s for argument %d of %s",
+                                                                                     argument.isPrimitive() ? "boxes" : "unboxes",
+                                                                                     argument.getSimpleName(), converted.getSimpleName(), i + 1, callee));
+                    }
+                }
+            }
+
+            private void checkConversion(CType target, CExpression value, String what) {
+                val type = typeOf(value);
+                if (type != null && converts(type, target)) {
+                    report(Finding.Rule.BOXING, Severity.WARNING, String.format("%s %s to %s in the %s",
+                                                                                 type.isPrimitive() ? "boxes" : "unboxes",
+                                                                                 type.getSimpleName(), target.getSimpleName(), what));
+                }
+            }
+
+            /**
+             * Best effort static type of an expression, or null if unknown.
+             */
+            private CType typeOf(CExpression expression) {
+                if (expression instanceof CLiteral) {
+                    return literalType(((CLiteral) expression).text);
+                } else if (expression instanceof CVariable) {
+                    val name = ((CVariable) expression).name;
+                    if (name.equals("this")) return current.getCType();
+                    val local = scope.get(name);
+                    return local != null ? local : fieldType(current, name);
+                } else if (expression instanceof CFieldAccess) {
+                    val access = (CFieldAccess) expression;
+                    val owner = access.target != null ? typeOf(access.target) : access.owner;
+                    if (owner == null) return null;
+                    if (owner.isArray()) return access.name.equals("length") ? CType.INT : null;
+                    val generated = byType.get(owner.erasure());
+                    return generated == null ? null : fieldType(generated, access.name);
+                } else if (expression instanceof CMethodCall) {
+                    return returnType((CMethodCall) expression);
+                } else if (expression instanceof CNew) {
+                    return ((CNew) expression).type;
+                } else if (expression instanceof CNewArray) {
+                    return ((CNewArray) expression).type;
+                } else if (expression instanceof CCast) {
+                    return ((CCast) expression).type;
+                } else if (expression instanceof CArrayAccess) {
+                    val array = typeOf(((CArrayAccess) expression).array);
+                    return array == null || !array.isArray() ? null : componentType(array);
+                } else if (expression instanceof CAssign) {
+                    return typeOf(((CAssign) expression).target);
+                } else if (expression instanceof CUnary) {
+                    val unary = (CUnary) expression;
+                    return unary.operator.equals("!") ? CType.BOOLEAN : promote(typeOf(unary.operand), CType.INT);
+                } else if (expression instanceof CBinary) {
+                    return binaryType((CBinary) expression);
+                }
+                return null;
+            }
+
+            private CType binaryType(CBinary binary) {
+                switch (binary.operator) {
+                    case "==": case "!=": case "<": case "<=": case ">": case ">=": case "&&": case "||": case "instanceof":
+                        return CType.BOOLEAN;
+                    default:
+                        break;
+                }
+                val left = typeOf(binary.left);
+                val right = typeOf(binary.right);
+                if (binary.operator.equals("+") && (left == STRING || right == STRING)) return STRING;
+                if (left == CType.BOOLEAN && right == CType.BOOLEAN) return CType.BOOLEAN;
+                if (binary.operator.startsWith("<<") || binary.operator.startsWith(">>")) return promote(left, CType.INT);
+                return promote(left, promote(right, CType.INT));
+            }
+
+            private CType returnType(CMethodCall call) {
+                val owner = call.target == null ? (call.owner == null ? current.getCType() : call.owner) : typeOf(call.target);
+                if (owner == null) return null;
+                CType result = null;
+                val generated = byType.get(owner.erasure());
+                if (generated != null) {
+                    for (val method: generated.getMethods()) {
+                        if (!method.name.equals(call.name) || method.paramList.getParameters().size() != call.arguments.size()) continue;
+                        if (result != null && result != method.returnType) return null;
+                        result = method.returnType;
+                    }
+                    return result;
+                }
+                val clazz = owner.tryGetClass(classLoader);
+                if (!clazz.isPresent()) return null;
+                for (val method: clazz.get().getMethods()) {
+                    if (!method.getName().equals(call.name) || method.getParameterCount() != call.arguments.size()) continue;
+                    val type = CType.of(method.getReturnType());
+                    if (result != null && result != type) return null;
+                    result = type;
+                }
+                return result;
+            }
+        }
+
+    }
+
+    private boolean enabled(Finding.Rule rule) {
+        return !disabledRules.contains(rule);
+    }
+
+    private static String signature(String name, CImmutableList<CParameter> params) {
+        return name + params.getParameters().stream().map((param) -> param.getType().getSimpleName()).collect(Collectors.joining(", ", "(", ")"));
+    }
+
+    private static List<CType> parameterTypes(CImmutableList<CParameter> params) {
+        val result = new ArrayList<CType>();
+        for (val param: params.getParameters()) {
+            result.add(param.getType());
+        }
+        return result;
+    }
+
+    private static List<List<CType>> reflectedParameterTypes(List<Executable> executables, int arity) {
+        val result = new ArrayList<List<CType>>();
+        for (val executable: executables) {
+            if (executable.getParameterCount() != arity || executable.isVarArgs()) continue;
+            val types = new ArrayList<CType>();
+            for (val type: executable.getParameterTypes()) {
+                types.add(CType.of(type));
+            }
+            result.add(types);
+        }
+        return result;
+    }
+
+    /**
+     * @return True if passing a value of the first type where the second is expected boxes or unboxes it.
+     */
+    private static boolean converts(CType from, CType to) {
+        if (from == CType.VOID || to == CType.VOID) return false;
+        if (from.isPrimitive()) return !to.isPrimitive();
+        return to.isPrimitive() && UNBOXED.containsKey(from);
+    }
+
+    private static CType fieldType(CClass cClass, String name) {
+        for (val field: cClass.getFields()) {
+            if (field.name.equals(name)) return field.type;
+        }
+        return null;
+    }
+
+    private static CType componentType(CType array) {
+        val base = array.arrayBaseType();
+        CType result = base;
+        for (int i = 1; i < array.arrayDimensions(); i++) {
+            result = result.arrayOf();
+        }
+        return result;
+    }
+
+    /**
+     * Binary numeric promotion, or null if either type is not numeric.
+     */
+    private static CType promote(CType a, CType b) {
+        if (a == null || b == null) return null;
+        val rankA = NUMERIC_RANK.get(UNBOXED.getOrDefault(a, a));
+        val rankB = NUMERIC_RANK.get(UNBOXED.getOrDefault(b, b));
+        if (rankA == null || rankB == null) return null;
+        switch (Math.max(rankA, rankB)) {
+            case 4: return CType.DOUBLE;
+            case 3: return CType.FLOAT;
+            case 2: return CType.LONG;
+            default: return CType.INT;
+        }
+    }
+
+    private static CType literalType(String text) {
+        if (text.isEmpty() || text.equals("null")) return null;
+        if (text.equals("true") || text.equals("false")) return CType.BOOLEAN;
+        val first = text.charAt(0);
+        if (first == '"') return STRING;
+        if (first == '\'') return CType.CHAR;
+        if (!Character.isDigit(first) && first != '-' && first != '.') {
+            return text.startsWith("Double.") ? CType.DOUBLE : text.startsWith("Float.") ? CType.FLOAT : null;
+        }
+        val last = Character.toLowerCase(text.charAt(text.length() - 1));
+        if (last == 'l') return CType.LONG;
+        if (last == 'f' && !text.startsWith("0x")) return CType.FLOAT;
+        if (last == 'd' && !text.startsWith("0x")) return CType.DOUBLE;
+        return text.indexOf('.') >= 0 || (!text.startsWith("0x") && text.indexOf('e') >= 0) ? CType.DOUBLE : CType.INT;
+    }
+
+    private static boolean writes(CBlock body, String code, String field) {
+        return countWrites(body, code, field) > 0;
+    }
+
+    private static int countWrites(CBlock body, String code, String field) {
+        if (body != null) {
+            val count = new int[1];
+            findWrites(body, field, count);
+            return count[0];
+        }
+        return code != null ? countMatches(assignmentPattern(field), code) : 0;
+    }
+
+    private static void findWrites(CodeElement element, String field, int[] count) {
+        if (element instanceof CAssign) {
+            if (isFieldReference(((CAssign) element).target, field)) count[0]++;
+        } else if (element instanceof CUnary) {
+            val unary = (CUnary) element;
+            if ((unary.operator.equals("++") || unary.operator.equals("--")) && isFieldReference(unary.operand, field)) count[0]++;
+        } else if (element instanceof CRaw) {
+            count[0] += countMatches(assignmentPattern(field), ((CRaw) element).code);
+        }
+        element.forEachChild((child) -> findWrites(child, field, count));
+    }
+
+    private static int countMatches(Pattern pattern, String code) {
+        val matcher = pattern.matcher(code);
+        int count = 0;
+        while (matcher.find()) count++;
+        return count;
+    }
+
+    /**
+     * Conservatively true for any access to a field or variable of that name, since locals shadowing the field are not
+     * tracked.
+     */
+    private static boolean isFieldReference(CExpression target, String field) {
+        if (target instanceof CFieldAccess) return ((CFieldAccess) target).name.equals(field);
+        if (target instanceof CVariable) return ((CVariable) target).name.equals(field);
+        return target instanceof CRaw;
+    }
+
+    /**
+     * Matches plain, compound, increment and decrement assignments to the name, qualified or not.
+     */
+    private static Pattern assignmentPattern(String field) {
+        val name = Pattern.quote(field);
+        return Pattern.compile("(?<![\\w$])" + name + "\\s*(?:(?:[-+*/%&|^]|<<|>>>?)?=(?!=)|\\+\\+|--)|(?:\\+\\+|--)\\s*(?:[\\w$]+\\s*\\.\\s*)*" + name + "(?![\\w$])");
+    }
+
+}
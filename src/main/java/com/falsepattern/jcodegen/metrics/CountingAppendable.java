@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.metrics;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+
+/**
+ * Counts the characters passing through to another appendable.
+ */
+public final class CountingAppendable implements Appendable {
+    private final Appendable out;
+    private long count;
+
+    public CountingAppendable(@NonNull Appendable out) {
+        this.out = out;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public CountingAppendable append(CharSequence csq) throws IOException {
+        if (csq == null) csq = "null";
+        out.append(csq);
+        count += csq.length();
+        return this;
+    }
+
+    @Override
+    public CountingAppendable append(CharSequence csq, int start, int end) throws IOException {
+        if (csq == null) csq = "null";
+        out.append(csq, start, end);
+        count += end - start;
+        return this;
+    }
+
+    @Override
+    public CountingAppendable append(char c) throws IOException {
+        out.append(c);
+        count++;
+        return this;
+    }
+}
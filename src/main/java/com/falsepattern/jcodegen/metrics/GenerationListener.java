@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.metrics;
+
+import com.falsepattern.jcodegen.CType;
+
+/**
+ * Receives timing events from the generator. Installed through {@link GenerationMetrics#setListener}. Callbacks happen
+ * on the generating thread, so implementations must be thread safe and cheap.
+ */
+public interface GenerationListener {
+    enum Phase {
+        /**
+         * Registering or releasing the types of a member in the import index of a class.
+         */
+        IMPORT_INDEX,
+        /**
+         * Rendering a whole class, including cache hits.
+         */
+        RENDER,
+        IMPORTS,
+        DECLARATION,
+        FIELDS,
+        CONSTRUCTORS,
+        METHODS,
+        /**
+         * Writing a rendered unit to disk in a batch.
+         */
+        WRITE
+    }
+
+    default void phaseStarted(Phase phase) {}
+
+    /**
+     * @param size The amount of characters rendered during the phase (bytes for {@link Phase#WRITE}), or -1 if unknown.
+     */
+    default void phaseEnded(Phase phase, long size) {}
+
+    /**
+     * @param hit False if the lookup created a new type.
+     */
+    default void typeLookup(CType type, boolean hit) {}
+}
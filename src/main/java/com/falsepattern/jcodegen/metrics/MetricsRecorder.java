@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.metrics;
+
+import com.falsepattern.jcodegen.CType;
+import lombok.val;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default {@link GenerationListener}, recording a latency histogram, the rendered size and the allocated bytes of every
+ * phase, and the hit rate of type lookups.
+ * <p>
+ * Allocations are measured per thread through {@code com.sun.management.ThreadMXBean}, and reported as -1 on JVMs
+ * without it. A phase nested in itself on the same thread is only measured at the outermost level.
+ */
+public final class MetricsRecorder implements GenerationListener {
+    private static final Phase[] PHASES = Phase.values();
+
+    private final Map<Phase, PhaseStats> stats = new EnumMap<>(Phase.class);
+    private final LongAdder typeHits = new LongAdder();
+    private final LongAdder typeMisses = new LongAdder();
+    private final com.sun.management.ThreadMXBean threads;
+    /**
+     * Start time, allocated bytes and nesting depth of every phase currently running on a thread.
+     */
+    private final ThreadLocal<long[]> starts = ThreadLocal.withInitial(() -> new long[PHASES.length * 3]);
+
+    public MetricsRecorder() {
+        for (val phase: PHASES) {
+            stats.put(phase, new PhaseStats());
+        }
+        val bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threads = null;
+        }
+    }
+
+    /**
+     * Creates a recorder and installs it as the current listener.
+     */
+    public static MetricsRecorder install() {
+        val recorder = new MetricsRecorder();
+        GenerationMetrics.setListener(recorder);
+        return recorder;
+    }
+
+    @Override
+    public void phaseStarted(Phase phase) {
+        val start = starts.get();
+        val slot = phase.ordinal() * 3;
+        if (start[slot + 2]++ > 0) return;
+        start[slot + 1] = allocatedBytes();
+        start[slot] = System.nanoTime();
+    }
+
+    @Override
+    public void phaseEnded(Phase phase, long size) {
+        val start = starts.get();
+        val slot = phase.ordinal() * 3;
+        if (start[slot + 2] == 0 || --start[slot + 2] > 0) return;
+        val end = System.nanoTime();
+        val allocated = allocatedBytes();
+        val phaseStats = stats.get(phase);
+        phaseStats.latency.record(end - start[slot]);
+        if (size >= 0) {
+            phaseStats.size.add(size);
+        }
+        if (allocated >= 0) {
+            phaseStats.allocated.add(allocated - start[slot + 1]);
+        }
+    }
+
+    @Override
+    public void typeLookup(CType type, boolean hit) {
+        (hit ? typeHits : typeMisses).increment();
+    }
+
+    public PhaseStats getStats(Phase phase) {
+        return stats.get(phase);
+    }
+
+    public long getTypeHits() {
+        return typeHits.sum();
+    }
+
+    public long getTypeMisses() {
+        return typeMisses.sum();
+    }
+
+    public void reset() {
+        for (val phaseStats: stats.values()) {
+            phaseStats.reset();
+        }
+        typeHits.reset();
+        typeMisses.reset();
+    }
+
+    private long allocatedBytes() {
+        return threads == null ? -1 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @return A table with one row per phase that was recorded at least once, followed by the type lookup counts.
+     */
+    @Override
+    public String toString() {
+        val result = new StringBuilder(String.format("%-13s %10s %12s %10s %10s %10s %14s %14s%n", "phase", "count", "total ms", "mean us", "p50 us", "p99 us", "size", "alloc B"));
+        for (val phase: PHASES) {
+            val phaseStats = stats.get(phase);
+            val latency = phaseStats.latency;
+            if (latency.getCount() == 0) continue;
+            result.append(String.format("%-13s %10d %12.3f %10.2f %10.2f %10.2f %14d %14d%n",
+                                        phase, latency.getCount(), latency.getTotalNanos() / 1e6, latency.getMeanNanos() / 1e3,
+                                        latency.percentile(0.5) / 1e3, latency.percentile(0.99) / 1e3,
+                                        phaseStats.getSize(), threads == null ? -1 : phaseStats.getAllocatedBytes()));
+        }
+        result.append(String.format("type lookups: %d hits, %d misses%n", getTypeHits(), getTypeMisses()));
+        return result.toString();
+    }
+
+    public static final class PhaseStats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder size = new LongAdder();
+        private final LongAdder allocated = new LongAdder();
+
+        private PhaseStats() {}
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return The characters rendered (bytes written for {@link Phase#WRITE}) over all recorded runs of the phase.
+         */
+        public long getSize() {
+            return size.sum();
+        }
+
+        public long getAllocatedBytes() {
+            return allocated.sum();
+        }
+
+        private void reset() {
+            latency.reset();
+            size.reset();
+            allocated.reset();
+        }
+    }
+}
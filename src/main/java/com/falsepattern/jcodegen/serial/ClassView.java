@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.serial;
+
+import com.falsepattern.jcodegen.*;
+import lombok.Getter;
+import lombok.val;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+import static com.falsepattern.jcodegen.serial.ModelFormat.*;
+
+/**
+ * A class in a {@link ModelFile}. The class header is decoded up front, the fields, constructors and methods only when
+ * they are accessed, one member at a time.
+ */
+public final class ClassView {
+    @Getter
+    private final String pkg;
+    @Getter
+    private final String name;
+    @Getter
+    private final AccessSpecifier accessSpecifier;
+    @Getter
+    private final CType superclass;
+    @Getter
+    private final boolean cacheRendering;
+    @Getter
+    private final boolean internMembers;
+    @Getter
+    private final List<CType> implicitImports;
+    @Getter
+    private final List<CAnnotation> annotations;
+    private final ModelFile file;
+    private final ByteBuffer buffer;
+    private final Members<CField> fields;
+    private final Members<CConstructor> constructors;
+    private final Members<CMethod> methods;
+
+    ClassView(ModelFile file, ByteBuffer buffer, int offset) {
+        this.file = file;
+        this.buffer = buffer;
+        val decoder = new Decoder(file, buffer, offset);
+        val fieldSection = offset + decoder.readInt();
+        val constructorSection = offset + decoder.readInt();
+        val methodSection = offset + decoder.readInt();
+        this.pkg = decoder.readString();
+        this.name = decoder.readString();
+        this.accessSpecifier = AccessSpecifier.of(decoder.readVarint());
+        this.superclass = decoder.readType();
+        val flags = decoder.readByte();
+        this.cacheRendering = (flags & FLAG_CACHE_RENDERING) != 0;
+        this.internMembers = (flags & FLAG_INTERN_MEMBERS) != 0;
+        val implicitImports = new CType[decoder.readVarint()];
+        for (int i = 0; i < implicitImports.length; i++) {
+            implicitImports[i] = decoder.readType();
+        }
+        this.implicitImports = Collections.unmodifiableList(Arrays.asList(implicitImports));
+        val annotationCount = decoder.readVarint();
+        val annotations = new ArrayList<CAnnotation>(annotationCount);
+        for (int i = 0; i < annotationCount; i++) {
+            val type = decoder.readType();
+            val paramCount = decoder.readVarint();
+            CImmutableList<CAnnotationArgument> params = CImmutableList.empty();
+            for (int j = 0; j < paramCount; j++) {
+                val paramName = decoder.readString();
+                params = params.append(CAnnotationArgument.builder().name(paramName).arg(decoder.readString()).build());
+            }
+            annotations.add(CAnnotation.builder().type(type).params(params).build());
+        }
+        this.annotations = Collections.unmodifiableList(annotations);
+        this.fields = new Members<>(fieldSection, Kind.FIELD);
+        this.constructors = new Members<>(constructorSection, Kind.CONSTRUCTOR);
+        this.methods = new Members<>(methodSection, Kind.METHOD);
+    }
+
+    public String getQualifiedName() {
+        return ModelFile.qualify(pkg, name);
+    }
+
+    /**
+     * @return A lazy list; each field is decoded on its first access.
+     */
+    public List<CField> getFields() {
+        return fields;
+    }
+
+    /**
+     * @return A lazy list; each constructor is decoded on its first access.
+     */
+    public List<CConstructor> getConstructors() {
+        return constructors;
+    }
+
+    /**
+     * @return A lazy list; each method is decoded on its first access.
+     */
+    public List<CMethod> getMethods() {
+        return methods;
+    }
+
+    /**
+     * @return A new class with all members decoded. Changes to it are not written back to the file.
+     */
+    public CClass toCClass() {
+        val cClass = CClass.builder()
+                           .pkg(pkg)
+                           .accessSpecifier(accessSpecifier)
+                           .name(name)
+                           .superclass(superclass)
+                           .cacheRendering(cacheRendering)
+                           .internMembers(internMembers)
+                           .build();
+        implicitImports.forEach(cClass::importImplicitly);
+        annotations.forEach(cClass::addAnnotation);
+        fields.forEach(cClass::addField);
+        constructors.forEach(cClass::addConstructor);
+        methods.forEach(cClass::addMethod);
+        return cClass;
+    }
+
+    @Override
+    public String toString() {
+        return getQualifiedName();
+    }
+
+    private enum Kind {
+        FIELD, CONSTRUCTOR, METHOD
+    }
+
+    private Object decode(Kind kind, Decoder decoder) {
+        val access = AccessSpecifier.of(decoder.readVarint());
+        switch (kind) {
+            case FIELD: {
+                val type = decoder.readType();
+                val name = decoder.readString();
+                return CField.builder().accessSpecifier(access).type(type).name(name).initializer(decoder.readString()).build();
+            }
+            case CONSTRUCTOR: {
+                val paramList = decoder.readParameters();
+                val code = decoder.readString();
+                return CConstructor.builder().accessSpecifier(access).paramList(paramList).code(code).body(decoder.readBlock()).build();
+            }
+            default: {
+                val returnType = decoder.readType();
+                val name = decoder.readString();
+                val paramList = decoder.readParameters();
+                val code = decoder.readString();
+                return CMethod.builder().accessSpecifier(access).returnType(returnType).name(name).paramList(paramList).code(code).body(decoder.readBlock()).build();
+            }
+        }
+    }
+
+    private final class Members<T> extends AbstractList<T> implements RandomAccess {
+        private final int section;
+        private final Kind kind;
+        private final Object[] decoded;
+
+        private Members(int section, Kind kind) {
+            this.section = section;
+            this.kind = kind;
+            this.decoded = new Object[buffer.getInt(section)];
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= decoded.length) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + decoded.length);
+            Object member = decoded[index];
+            if (member == null) {
+                member = decode(kind, new Decoder(file, buffer, section + buffer.getInt(section + 4 + 4 * index)));
+                decoded[index] = member;
+            }
+            return (T) member;
+        }
+
+        @Override
+        public int size() {
+            return decoded.length;
+        }
+    }
+}
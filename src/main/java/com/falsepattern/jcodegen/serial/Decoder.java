@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.serial;
+
+import com.falsepattern.jcodegen.CImmutableList;
+import com.falsepattern.jcodegen.CParameter;
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.code.*;
+import lombok.val;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.falsepattern.jcodegen.serial.ModelFormat.*;
+
+/**
+ * Cursor over a model file. Only absolute reads are used on the shared buffer, so any number of decoders can read it
+ * concurrently.
+ */
+final class Decoder {
+    private final ModelFile file;
+    private final ByteBuffer buffer;
+    int position;
+
+    Decoder(ModelFile file, ByteBuffer buffer, int position) {
+        this.file = file;
+        this.buffer = buffer;
+        this.position = position;
+    }
+
+    int readByte() {
+        return buffer.get(position++) & 0xFF;
+    }
+
+    int readInt() {
+        val value = buffer.getInt(position);
+        position += 4;
+        return value;
+    }
+
+    int readVarint() {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = buffer.get(position++);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    String readString() {
+        return file.string(readVarint());
+    }
+
+    CType readType() {
+        return file.type(readVarint());
+    }
+
+    CImmutableList<CParameter> readParameters() {
+        val count = readVarint();
+        CImmutableList<CParameter> params = CImmutableList.empty();
+        for (int i = 0; i < count; i++) {
+            val type = readType();
+            params = params.append(CParameter.builder().type(type).name(readString()).build());
+        }
+        return params;
+    }
+
+    CBlock readBlock() {
+        return (CBlock) readNode();
+    }
+
+    CExpression readExpression() {
+        return (CExpression) readNode();
+    }
+
+    @SuppressWarnings("unchecked")
+    <T extends CodeElement> List<T> readNodes() {
+        val count = readVarint();
+        val nodes = new ArrayList<T>(count);
+        for (int i = 0; i < count; i++) {
+            nodes.add((T) readNode());
+        }
+        return nodes;
+    }
+
+    private CExpression[] readArguments() {
+        return this.<CExpression>readNodes().toArray(new CExpression[0]);
+    }
+
+    CodeElement readNode() {
+        val tag = readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_BLOCK:
+                return CBlock.of(this.<CStatement>readNodes());
+            case TAG_EXPRESSION_STATEMENT:
+                return new CExpressionStatement(readExpression());
+            case TAG_VARIABLE: {
+                val name = readString();
+                return name.equals("this") ? CVariable.THIS : new CVariable(name);
+            }
+            case TAG_LITERAL:
+                return CLiteral.raw(readString());
+            case TAG_METHOD_CALL: {
+                val target = readExpression();
+                val owner = readType();
+                val name = readString();
+                val arguments = readArguments();
+                if (target != null) return CMethodCall.of(target, name, arguments);
+                if (owner != null) return CMethodCall.ofStatic(owner, name, arguments);
+                return CMethodCall.unqualified(name, arguments);
+            }
+            case TAG_FIELD_ACCESS: {
+                val target = readExpression();
+                val owner = readType();
+                val name = readString();
+                return target != null ? CFieldAccess.of(target, name) : CFieldAccess.ofStatic(owner, name);
+            }
+            case TAG_BINARY: {
+                val left = readExpression();
+                val operator = readString();
+                return new CBinary(left, operator, readExpression());
+            }
+            case TAG_LOCAL: {
+                val type = readType();
+                val name = readString();
+                val initializer = readExpression();
+                return new CLocalVariable(type, name, initializer, readByte() != 0);
+            }
+            case TAG_RETURN: {
+                val value = readExpression();
+                return value == null ? CReturn.VOID : new CReturn(value);
+            }
+            case TAG_IF: {
+                val condition = readExpression();
+                val then = readBlock();
+                val otherwise = readNode();
+                if (otherwise == null) return CIf.of(condition, then);
+                return otherwise instanceof CIf ? CIf.of(condition, then, (CIf) otherwise) : CIf.of(condition, then, (CBlock) otherwise);
+            }
+            case TAG_ASSIGN: {
+                val target = readExpression();
+                val operator = readString();
+                return new CAssign(target, operator, readExpression());
+            }
+            case TAG_RAW: {
+                val code = readString();
+                val types = new CType[readVarint()];
+                for (int i = 0; i < types.length; i++) {
+                    types[i] = readType();
+                }
+                return new CRaw(code, types);
+            }
+            case TAG_SWITCH: {
+                val builder = CSwitch.builder().selector(readExpression());
+                val count = readVarint();
+                for (int i = 0; i < count; i++) {
+                    val labels = this.<CExpression>readNodes();
+                    builder.addCase(new CSwitch.Case(Collections.unmodifiableList(labels), readBlock()));
+                }
+                return builder.build();
+            }
+            case TAG_NEW: {
+                val type = readType();
+                return new CNew(type, readArguments());
+            }
+            case TAG_NEW_ARRAY: {
+                val type = readType();
+                val length = readExpression();
+                return length != null ? CNewArray.ofLength(type, length) : CNewArray.of(type, readArguments());
+            }
+            case TAG_CAST: {
+                val type = readType();
+                return new CCast(type, readExpression());
+            }
+            case TAG_TYPE_LITERAL:
+                return new CTypeLiteral(readType());
+            case TAG_UNARY: {
+                val operator = readString();
+                val operand = readExpression();
+                return new CUnary(operator, operand, readByte() != 0);
+            }
+            case TAG_ARRAY_ACCESS: {
+                val array = readExpression();
+                return new CArrayAccess(array, readExpression());
+            }
+            case TAG_THROW:
+                return new CThrow(readExpression());
+            case TAG_JUMP: {
+                val isContinue = readByte() != 0;
+                val label = readString();
+                if (label == null) return isContinue ? CJump.CONTINUE : CJump.BREAK;
+                return new CJump(isContinue, label);
+            }
+            case TAG_WHILE: {
+                val condition = readExpression();
+                val body = readBlock();
+                return new CWhile(condition, body, readByte() != 0);
+            }
+            case TAG_FOR: {
+                val init = (CLocalVariable) readNode();
+                val condition = readExpression();
+                val update = readExpression();
+                return new CFor(init, condition, update, readBlock());
+            }
+            case TAG_FOR_EACH: {
+                val type = readType();
+                val name = readString();
+                val iterable = readExpression();
+                return new CForEach(type, name, iterable, readBlock());
+            }
+            default:
+                throw new IllegalStateException("Unknown node tag " + tag + " at offset " + (position - 1));
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.serial;
+
+import com.falsepattern.jcodegen.CClass;
+import com.falsepattern.jcodegen.CType;
+import lombok.NonNull;
+import lombok.val;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.falsepattern.jcodegen.serial.ModelFormat.*;
+
+/**
+ * Read-only view of a file written by {@link ModelWriter}. Opening a file only checks its header and footer; strings,
+ * types, classes and members are decoded on first access and then cached, so a process only pays for the classes it
+ * touches.
+ * <p>
+ * Instances can be shared between threads. Two threads decoding the same entry at once produce equal values, and one of
+ * them is kept.
+ */
+public final class ModelFile {
+    private final ByteBuffer buffer;
+    private final int stringIndex;
+    private final int typeIndex;
+    private final int classIndex;
+    private final String[] strings;
+    private final CType[] types;
+    private final ClassView[] classes;
+    private volatile Map<String, Integer> classesByName;
+
+    private ModelFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        val limit = buffer.limit();
+        if (limit < HEADER_SIZE + FOOTER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(limit - 4) != MAGIC) {
+            throw new IOException("Not a model file");
+        }
+        if (buffer.getInt(4) != VERSION) throw new IOException("Unsupported model file version " + buffer.getInt(4));
+        val footer = limit - FOOTER_SIZE;
+        this.stringIndex = buffer.getInt(footer);
+        this.strings = new String[buffer.getInt(footer + 4)];
+        this.typeIndex = buffer.getInt(footer + 8);
+        this.types = new CType[buffer.getInt(footer + 12)];
+        this.classIndex = buffer.getInt(footer + 16);
+        this.classes = new ClassView[buffer.getInt(footer + 20)];
+    }
+
+    /**
+     * Maps the file into memory. The mapping stays valid after the file is closed, and is released once this instance
+     * is collected.
+     */
+    public static ModelFile open(@NonNull Path path) throws IOException {
+        try (val channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            val size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("Model files are limited to 2GB, " + path + " has " + size + " bytes");
+            return new ModelFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * @param buffer The model, from index 0 to its limit. The buffer is not modified.
+     */
+    public static ModelFile of(@NonNull ByteBuffer buffer) throws IOException {
+        return new ModelFile(buffer.duplicate().order(ByteOrder.BIG_ENDIAN));
+    }
+
+    /**
+     * @return The number of classes in the file.
+     */
+    public int size() {
+        return classes.length;
+    }
+
+    /**
+     * @return The fully qualified name of a class, without decoding the class.
+     */
+    public String className(int index) {
+        val entry = classEntry(index);
+        return qualify(string(buffer.getInt(entry + 4)), string(buffer.getInt(entry + 8)));
+    }
+
+    public ClassView get(int index) {
+        ClassView view = classes[index];
+        if (view == null) {
+            view = new ClassView(this, buffer, buffer.getInt(classEntry(index)));
+            classes[index] = view;
+        }
+        return view;
+    }
+
+    public Optional<ClassView> find(@NonNull String qualifiedName) {
+        Map<String, Integer> byName = classesByName;
+        if (byName == null) {
+            byName = new HashMap<>();
+            for (int i = 0; i < classes.length; i++) {
+                byName.put(className(i), i);
+            }
+            classesByName = byName;
+        }
+        val index = byName.get(qualifiedName);
+        return index == null ? Optional.empty() : Optional.of(get(index));
+    }
+
+    /**
+     * @return A new, fully decoded class. Equivalent to {@code get(index).toCClass()}.
+     */
+    public CClass load(int index) {
+        return get(index).toCClass();
+    }
+
+    private int classEntry(int index) {
+        if (index < 0 || index >= classes.length) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + classes.length);
+        return classIndex + index * CLASS_INDEX_ENTRY_SIZE;
+    }
+
+    static String qualify(String pkg, String name) {
+        return pkg == null || pkg.isEmpty() ? name : pkg + "." + name;
+    }
+
+    String string(int ref) {
+        if (ref == 0) return null;
+        String string = strings[ref - 1];
+        if (string == null) {
+            val decoder = new Decoder(this, buffer, buffer.getInt(stringIndex + (ref - 1) * 4));
+            val utf8 = new byte[decoder.readVarint()];
+            val source = buffer.duplicate();
+            source.position(decoder.position);
+            source.get(utf8);
+            string = new String(utf8, StandardCharsets.UTF_8);
+            strings[ref - 1] = string;
+        }
+        return string;
+    }
+
+    CType type(int ref) {
+        if (ref == 0) return null;
+        CType type = types[ref - 1];
+        if (type == null) {
+            type = decodeType(new Decoder(this, buffer, buffer.getInt(typeIndex + (ref - 1) * 4)));
+            types[ref - 1] = type;
+        }
+        return type;
+    }
+
+    private static CType decodeType(Decoder decoder) {
+        val kind = CType.Kind.values()[decoder.readByte()];
+        val name = decoder.readString();
+        val dimensions = decoder.readVarint();
+        val args = new CType[decoder.readVarint()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = decoder.readType();
+        }
+        val bound = decoder.readType();
+        CType type;
+        switch (kind) {
+            case CLASS:
+                if (args.length == 0) return CType.of(name, dimensions);
+                type = CType.of(name, 0).withTypeArguments(args);
+                break;
+            case TYPE_VARIABLE:
+                type = CType.typeVariable(name);
+                break;
+            case WILDCARD:
+                return CType.wildcard();
+            case WILDCARD_EXTENDS:
+                return CType.wildcardExtends(bound);
+            case WILDCARD_SUPER:
+                return CType.wildcardSuper(bound);
+            default:
+                throw new IllegalStateException("Unknown type kind " + kind);
+        }
+        for (int i = 0; i < dimensions; i++) {
+            type = type.arrayOf();
+        }
+        return type;
+    }
+}
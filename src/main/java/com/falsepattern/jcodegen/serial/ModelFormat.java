@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.serial;
+
+/**
+ * Layout of a model file. All fixed width integers are big endian, all other integers are unsigned LEB128 varints.
+ * <pre>
+ * header       int MAGIC, int VERSION
+ * classes      one record per class, see {@link ModelWriter}
+ * strings      per string: varint byte length, UTF-8 bytes
+ * types        per type: byte kind, string ref name, varint dimensions, varint argument count, type ref arguments,
+ *              type ref bound
+ * string index int offset per string
+ * type index   int offset per type
+ * class index  per class: int record offset, int package string ref, int name string ref
+ * footer       int string index, int string count, int type index, int type count, int class index, int class count,
+ *              int MAGIC
+ * </pre>
+ * String and type refs are the table index plus one, so that 0 can stand for null. Offsets are absolute.
+ */
+final class ModelFormat {
+    static final int MAGIC = 0x4A43474D;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int FOOTER_SIZE = 28;
+    static final int CLASS_INDEX_ENTRY_SIZE = 12;
+
+    static final int FLAG_CACHE_RENDERING = 1;
+    static final int FLAG_INTERN_MEMBERS = 2;
+
+    static final int TAG_NULL = 0;
+    static final int TAG_RAW = 1;
+    static final int TAG_LITERAL = 2;
+    static final int TAG_VARIABLE = 3;
+    static final int TAG_FIELD_ACCESS = 4;
+    static final int TAG_METHOD_CALL = 5;
+    static final int TAG_NEW = 6;
+    static final int TAG_NEW_ARRAY = 7;
+    static final int TAG_CAST = 8;
+    static final int TAG_TYPE_LITERAL = 9;
+    static final int TAG_BINARY = 10;
+    static final int TAG_UNARY = 11;
+    static final int TAG_ASSIGN = 12;
+    static final int TAG_ARRAY_ACCESS = 13;
+    static final int TAG_BLOCK = 14;
+    static final int TAG_LOCAL = 15;
+    static final int TAG_EXPRESSION_STATEMENT = 16;
+    static final int TAG_RETURN = 17;
+    static final int TAG_THROW = 18;
+    static final int TAG_JUMP = 19;
+    static final int TAG_IF = 20;
+    static final int TAG_WHILE = 21;
+    static final int TAG_FOR = 22;
+    static final int TAG_FOR_EACH = 23;
+    static final int TAG_SWITCH = 24;
+
+    private ModelFormat() {}
+}
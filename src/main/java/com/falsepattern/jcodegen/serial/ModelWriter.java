@@ -0,0 +1,407 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.serial;
+
+import com.falsepattern.jcodegen.CClass;
+import com.falsepattern.jcodegen.CImmutableList;
+import com.falsepattern.jcodegen.CParameter;
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.code.*;
+import lombok.NonNull;
+import lombok.val;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.falsepattern.jcodegen.serial.ModelFormat.*;
+
+/**
+ * Writes classes into the binary model format read by {@link ModelFile}. Each class is encoded and written to the
+ * channel as soon as it is passed in, only the shared string and type tables are kept until {@link #close()}.
+ * <p>
+ * A class record starts with three ints pointing at its field, constructor and method sections, followed by the
+ * package, name, modifiers, superclass, flags, implicit imports and annotations. Each section is an int member count and
+ * one int offset per member, so that members can be decoded one at a time. Offsets inside a record are relative to the
+ * record or section start. Structured bodies are written as a tree of tagged nodes.
+ * <p>
+ * Closing this writer writes the tables and the index, but does not close the channel.
+ */
+public final class ModelWriter implements Closeable {
+    private final WritableByteChannel channel;
+    private final Encoder encoder = new Encoder();
+    private final Map<String, Integer> stringRefs = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final Map<CType, Integer> typeRefs = new HashMap<>();
+    private final List<CType> types = new ArrayList<>();
+    /**
+     * Per class: record offset, package ref, name ref.
+     */
+    private final List<int[]> classIndex = new ArrayList<>();
+    private long position;
+    private boolean closed;
+
+    public ModelWriter(@NonNull WritableByteChannel channel) throws IOException {
+        this.channel = channel;
+        encoder.writeInt(MAGIC);
+        encoder.writeInt(VERSION);
+        flush();
+    }
+
+    public ModelWriter write(@NonNull CClass cClass) throws IOException {
+        if (closed) throw new IllegalStateException("Model writer was already closed");
+        val pkg = stringRef(cClass.getPkg());
+        val name = stringRef(cClass.getName());
+        classIndex.add(new int[]{offset(), pkg, name});
+
+        val sections = encoder.reserveInts(3);
+        encoder.writeVarint(pkg);
+        encoder.writeVarint(name);
+        encoder.writeVarint(cClass.getAccessSpecifier().modifiers);
+        encoder.writeVarint(typeRef(cClass.getSuperclass()));
+        encoder.writeByte((cClass.isCacheRendering() ? FLAG_CACHE_RENDERING : 0) | (cClass.isInternMembers() ? FLAG_INTERN_MEMBERS : 0));
+        val implicitImports = cClass.getImplicitImports();
+        encoder.writeVarint(implicitImports.size());
+        for (val type : implicitImports) {
+            encoder.writeVarint(typeRef(type));
+        }
+        val annotations = cClass.getAnnotations();
+        encoder.writeVarint(annotations.size());
+        for (val annotation : annotations) {
+            encoder.writeVarint(typeRef(annotation.getType()));
+            val params = annotation.getParams().getParameters();
+            encoder.writeVarint(params.size());
+            for (val param : params) {
+                encoder.writeVarint(stringRef(param.getName()));
+                encoder.writeVarint(stringRef(param.getArg()));
+            }
+        }
+
+        val fields = cClass.getFields();
+        encoder.setInt(sections, encoder.size() - sections);
+        val fieldOffsets = startSection(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            val field = fields.get(i);
+            encoder.setInt(fieldOffsets + 4 * i, encoder.size() - fieldOffsets + 4);
+            encoder.writeVarint(field.accessSpecifier.modifiers);
+            encoder.writeVarint(typeRef(field.type));
+            encoder.writeVarint(stringRef(field.name));
+            encoder.writeVarint(stringRef(field.initializer));
+        }
+
+        val constructors = cClass.getConstructors();
+        encoder.setInt(sections + 4, encoder.size() - sections);
+        val constructorOffsets = startSection(constructors.size());
+        for (int i = 0; i < constructors.size(); i++) {
+            val constructor = constructors.get(i);
+            encoder.setInt(constructorOffsets + 4 * i, encoder.size() - constructorOffsets + 4);
+            encoder.writeVarint(constructor.accessSpecifier.modifiers);
+            writeParameters(constructor.paramList);
+            encoder.writeVarint(stringRef(constructor.code));
+            writeNode(constructor.body);
+        }
+
+        val methods = cClass.getMethods();
+        encoder.setInt(sections + 8, encoder.size() - sections);
+        val methodOffsets = startSection(methods.size());
+        for (int i = 0; i < methods.size(); i++) {
+            val method = methods.get(i);
+            encoder.setInt(methodOffsets + 4 * i, encoder.size() - methodOffsets + 4);
+            encoder.writeVarint(method.accessSpecifier.modifiers);
+            encoder.writeVarint(typeRef(method.returnType));
+            encoder.writeVarint(stringRef(method.name));
+            writeParameters(method.paramList);
+            encoder.writeVarint(stringRef(method.code));
+            writeNode(method.body);
+        }
+        flush();
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        // Type entries may add name strings, so the types are encoded before the string table is written out
+        val typeTable = new Encoder();
+        val typeOffsets = new int[types.size()];
+        for (int i = 0; i < types.size(); i++) {
+            typeOffsets[i] = typeTable.size();
+            writeTypeEntry(typeTable, types.get(i));
+        }
+
+        val stringOffsets = new int[strings.size()];
+        for (int i = 0; i < strings.size(); i++) {
+            stringOffsets[i] = offset() + encoder.size();
+            encoder.writeString(strings.get(i));
+            if (encoder.size() >= 1 << 20) flush();
+        }
+        flush();
+        val typeTableStart = offset();
+        writeFully(typeTable);
+
+        val stringIndex = offset();
+        for (val stringOffset : stringOffsets) {
+            encoder.writeInt(stringOffset);
+        }
+        val typeIndex = stringIndex + 4 * stringOffsets.length;
+        for (val typeOffset : typeOffsets) {
+            encoder.writeInt(typeTableStart + typeOffset);
+        }
+        val classIndexStart = typeIndex + 4 * typeOffsets.length;
+        for (val entry : classIndex) {
+            encoder.writeInt(entry[0]);
+            encoder.writeInt(entry[1]);
+            encoder.writeInt(entry[2]);
+        }
+        encoder.writeInt(stringIndex);
+        encoder.writeInt(stringOffsets.length);
+        encoder.writeInt(typeIndex);
+        encoder.writeInt(typeOffsets.length);
+        encoder.writeInt(classIndexStart);
+        encoder.writeInt(classIndex.size());
+        encoder.writeInt(MAGIC);
+        flush();
+    }
+
+    private int startSection(int count) {
+        encoder.writeInt(count);
+        return encoder.reserveInts(count);
+    }
+
+    private void writeParameters(CImmutableList<CParameter> paramList) {
+        val params = paramList.getParameters();
+        encoder.writeVarint(params.size());
+        for (val param : params) {
+            encoder.writeVarint(typeRef(param.getType()));
+            encoder.writeVarint(stringRef(param.getName()));
+        }
+    }
+
+    private void writeNodes(List<? extends CodeElement> nodes) {
+        encoder.writeVarint(nodes.size());
+        for (val node : nodes) {
+            writeNode(node);
+        }
+    }
+
+    private void writeNode(CodeElement node) {
+        if (node == null) {
+            encoder.writeByte(TAG_NULL);
+        } else if (node instanceof CBlock) {
+            encoder.writeByte(TAG_BLOCK);
+            writeNodes(((CBlock) node).statements.getParameters());
+        } else if (node instanceof CExpressionStatement) {
+            encoder.writeByte(TAG_EXPRESSION_STATEMENT);
+            writeNode(((CExpressionStatement) node).expression);
+        } else if (node instanceof CVariable) {
+            encoder.writeByte(TAG_VARIABLE);
+            encoder.writeVarint(stringRef(((CVariable) node).name));
+        } else if (node instanceof CLiteral) {
+            encoder.writeByte(TAG_LITERAL);
+            encoder.writeVarint(stringRef(((CLiteral) node).text));
+        } else if (node instanceof CMethodCall) {
+            val call = (CMethodCall) node;
+            encoder.writeByte(TAG_METHOD_CALL);
+            writeNode(call.target);
+            encoder.writeVarint(typeRef(call.owner));
+            encoder.writeVarint(stringRef(call.name));
+            writeNodes(call.arguments);
+        } else if (node instanceof CFieldAccess) {
+            val access = (CFieldAccess) node;
+            encoder.writeByte(TAG_FIELD_ACCESS);
+            writeNode(access.target);
+            encoder.writeVarint(typeRef(access.owner));
+            encoder.writeVarint(stringRef(access.name));
+        } else if (node instanceof CBinary) {
+            val binary = (CBinary) node;
+            encoder.writeByte(TAG_BINARY);
+            writeNode(binary.left);
+            encoder.writeVarint(stringRef(binary.operator));
+            writeNode(binary.right);
+        } else if (node instanceof CLocalVariable) {
+            val local = (CLocalVariable) node;
+            encoder.writeByte(TAG_LOCAL);
+            encoder.writeVarint(typeRef(local.type));
+            encoder.writeVarint(stringRef(local.name));
+            writeNode(local.initializer);
+            encoder.writeByte(local.isFinal ? 1 : 0);
+        } else if (node instanceof CReturn) {
+            encoder.writeByte(TAG_RETURN);
+            writeNode(((CReturn) node).value);
+        } else if (node instanceof CIf) {
+            val cIf = (CIf) node;
+            encoder.writeByte(TAG_IF);
+            writeNode(cIf.condition);
+            writeNode(cIf.then);
+            writeNode(cIf.otherwise);
+        } else if (node instanceof CAssign) {
+            val assign = (CAssign) node;
+            encoder.writeByte(TAG_ASSIGN);
+            writeNode(assign.target);
+            encoder.writeVarint(stringRef(assign.operator));
+            writeNode(assign.value);
+        } else if (node instanceof CRaw) {
+            val raw = (CRaw) node;
+            encoder.writeByte(TAG_RAW);
+            encoder.writeVarint(stringRef(raw.code));
+            encoder.writeVarint(raw.types.size());
+            for (val type : raw.types) {
+                encoder.writeVarint(typeRef(type));
+            }
+        } else if (node instanceof CSwitch) {
+            val cSwitch = (CSwitch) node;
+            encoder.writeByte(TAG_SWITCH);
+            writeNode(cSwitch.selector);
+            encoder.writeVarint(cSwitch.cases.size());
+            for (val cCase : cSwitch.cases) {
+                writeNodes(cCase.labels);
+                writeNode(cCase.body);
+            }
+        } else if (node instanceof CNew) {
+            val cNew = (CNew) node;
+            encoder.writeByte(TAG_NEW);
+            encoder.writeVarint(typeRef(cNew.type));
+            writeNodes(cNew.arguments);
+        } else if (node instanceof CNewArray) {
+            val newArray = (CNewArray) node;
+            encoder.writeByte(TAG_NEW_ARRAY);
+            encoder.writeVarint(typeRef(newArray.type));
+            writeNode(newArray.length);
+            if (newArray.length == null) {
+                writeNodes(newArray.elements);
+            }
+        } else if (node instanceof CCast) {
+            val cast = (CCast) node;
+            encoder.writeByte(TAG_CAST);
+            encoder.writeVarint(typeRef(cast.type));
+            writeNode(cast.operand);
+        } else if (node instanceof CTypeLiteral) {
+            encoder.writeByte(TAG_TYPE_LITERAL);
+            encoder.writeVarint(typeRef(((CTypeLiteral) node).type));
+        } else if (node instanceof CUnary) {
+            val unary = (CUnary) node;
+            encoder.writeByte(TAG_UNARY);
+            encoder.writeVarint(stringRef(unary.operator));
+            writeNode(unary.operand);
+            encoder.writeByte(unary.postfix ? 1 : 0);
+        } else if (node instanceof CArrayAccess) {
+            val access = (CArrayAccess) node;
+            encoder.writeByte(TAG_ARRAY_ACCESS);
+            writeNode(access.array);
+            writeNode(access.index);
+        } else if (node instanceof CThrow) {
+            encoder.writeByte(TAG_THROW);
+            writeNode(((CThrow) node).exception);
+        } else if (node instanceof CJump) {
+            val jump = (CJump) node;
+            encoder.writeByte(TAG_JUMP);
+            encoder.writeByte(jump.isContinue ? 1 : 0);
+            encoder.writeVarint(stringRef(jump.label));
+        } else if (node instanceof CWhile) {
+            val loop = (CWhile) node;
+            encoder.writeByte(TAG_WHILE);
+            writeNode(loop.condition);
+            writeNode(loop.body);
+            encoder.writeByte(loop.doWhile ? 1 : 0);
+        } else if (node instanceof CFor) {
+            val loop = (CFor) node;
+            encoder.writeByte(TAG_FOR);
+            writeNode(loop.init);
+            writeNode(loop.condition);
+            writeNode(loop.update);
+            writeNode(loop.body);
+        } else if (node instanceof CForEach) {
+            val loop = (CForEach) node;
+            encoder.writeByte(TAG_FOR_EACH);
+            encoder.writeVarint(typeRef(loop.type));
+            encoder.writeVarint(stringRef(loop.name));
+            writeNode(loop.iterable);
+            writeNode(loop.body);
+        } else {
+            throw new IllegalArgumentException("Unsupported code element: " + node.getClass().getName());
+        }
+    }
+
+    private void writeTypeEntry(Encoder out, CType type) {
+        out.writeByte(type.getKind().ordinal());
+        out.writeVarint(stringRef(type.getNameAsImport()));
+        out.writeVarint(type.arrayDimensions());
+        val args = type.getTypeArguments();
+        out.writeVarint(args.size());
+        for (val arg : args) {
+            out.writeVarint(typeRef(arg));
+        }
+        out.writeVarint(typeRef(type.getBound()));
+    }
+
+    private int stringRef(String string) {
+        if (string == null) return 0;
+        Integer ref = stringRefs.get(string);
+        if (ref == null) {
+            strings.add(string);
+            ref = strings.size();
+            stringRefs.put(string, ref);
+        }
+        return ref;
+    }
+
+    /**
+     * Type arguments and bounds get their refs before the type itself, so the type table never points forward.
+     */
+    private int typeRef(CType type) {
+        if (type == null) return 0;
+        Integer ref = typeRefs.get(type);
+        if (ref == null) {
+            for (val arg : type.getTypeArguments()) {
+                typeRef(arg);
+            }
+            typeRef(type.getBound());
+            types.add(type);
+            ref = types.size();
+            typeRefs.put(type, ref);
+        }
+        return ref;
+    }
+
+    private int offset() throws IOException {
+        if (position > Integer.MAX_VALUE) throw new IOException("Model files are limited to 2GB");
+        return (int) position;
+    }
+
+    private void flush() throws IOException {
+        writeFully(encoder);
+        encoder.reset();
+    }
+
+    private void writeFully(Encoder source) throws IOException {
+        val buffer = source.buffer();
+        position += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,492 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.split;
+
+import com.falsepattern.jcodegen.AccessSpecifier;
+import com.falsepattern.jcodegen.CClass;
+import com.falsepattern.jcodegen.CImmutableList;
+import com.falsepattern.jcodegen.CMethod;
+import com.falsepattern.jcodegen.CParameter;
+import com.falsepattern.jcodegen.CType;
+import com.falsepattern.jcodegen.code.CBlock;
+import com.falsepattern.jcodegen.code.CExpression;
+import com.falsepattern.jcodegen.code.CExpressionStatement;
+import com.falsepattern.jcodegen.code.CFieldAccess;
+import com.falsepattern.jcodegen.code.CFor;
+import com.falsepattern.jcodegen.code.CForEach;
+import com.falsepattern.jcodegen.code.CJump;
+import com.falsepattern.jcodegen.code.CLiteral;
+import com.falsepattern.jcodegen.code.CLocalVariable;
+import com.falsepattern.jcodegen.code.CMethodCall;
+import com.falsepattern.jcodegen.code.CRaw;
+import com.falsepattern.jcodegen.code.CReturn;
+import com.falsepattern.jcodegen.code.CStatement;
+import com.falsepattern.jcodegen.code.CSwitch;
+import com.falsepattern.jcodegen.code.CThrow;
+import com.falsepattern.jcodegen.code.CVariable;
+import com.falsepattern.jcodegen.code.CWhile;
+import com.falsepattern.jcodegen.code.CodeElement;
+import lombok.Builder;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps generated methods below a bytecode size limit, by default HotSpot's huge method threshold above which methods
+ * are never JIT compiled.
+ * <p>
+ * A method with a structured {@link CMethod#body} whose estimated size is over the limit is cut between top-level
+ * statements into a chain of private helper methods, each ending with a tail call to the next one. Locals that are
+ * still used after a cut are passed as arguments. A trailing switch whose cases end in {@code return} or {@code throw},
+ * the usual dispatch shape, is also split by groups of cases, where the default case of each group calls the helper
+ * with the next group.
+ * <p>
+ * Code strings are never modified: a cut is not made where a raw statement could have declared a name that is used
+ * later, and methods that only have a code string are just reported. Constructors are not split.
+ */
+@Builder
+public final class MethodSplitter {
+    /**
+     * HotSpot does not JIT compile methods with more bytecode than this, unless {@code -XX:-DontCompileHugeMethods} is
+     * set.
+     */
+    public static final int HUGE_METHOD_LIMIT = 8000;
+    private static final int MAX_PARAMETER_SLOTS = 255;
+
+    @Builder.Default
+    private final int limit = HUGE_METHOD_LIMIT;
+
+    /**
+     * @return A conservative estimate of the bytecode size of the method. Code strings are bounded by
+     *         {@link CRaw#estimateBytecodeSize()}.
+     */
+    public static int estimateBytecodeSize(CMethod method) {
+        if (method.body != null) {
+            return method.body.estimateBytecodeSize() + 1;
+        }
+        return method.code == null ? 0 : new CRaw(method.code).estimateBytecodeSize() + 1;
+    }
+
+    /**
+     * Splits the oversized methods of the class in place. The helpers are appended after the existing methods.
+     */
+    public SplitReport split(CClass cClass) {
+        val results = new ArrayList<SplitResult>();
+        val names = new HashSet<String>();
+        for (val method: cClass.getMethods()) {
+            names.add(method.name);
+        }
+        for (val method: new ArrayList<>(cClass.getMethods())) {
+            val size = estimateBytecodeSize(method);
+            if (size <= limit) continue;
+            val signature = method.name + method.paramList.getParameters().stream().map((param) -> param.getType().getSimpleName()).collect(Collectors.joining(", ", "(", ")"));
+            if (method.body == null) {
+                results.add(new SplitResult(signature, SplitResult.Status.OPAQUE, size, size, 0));
+                continue;
+            }
+            val chain = new Chain(method, names);
+            val replacement = CMethod.builder()
+                                     .accessSpecifier(method.accessSpecifier)
+                                     .returnType(method.returnType)
+                                     .name(method.name)
+                                     .paramList(method.paramList)
+                                     .body(chain.chunk(0))
+                                     .build();
+            int largest = estimateBytecodeSize(replacement);
+            for (val helper: chain.helpers) {
+                largest = Math.max(largest, estimateBytecodeSize(helper));
+            }
+            if (!chain.helpers.isEmpty()) {
+                cClass.replaceMethod(method, replacement);
+                chain.helpers.forEach(cClass::addMethod);
+            }
+            val status = largest > limit ? SplitResult.Status.OVERSIZED : SplitResult.Status.SPLIT;
+            results.add(new SplitResult(signature, status, size, largest, chain.helpers.size()));
+        }
+        return new SplitReport(results, limit);
+    }
+
+    private final class Chain {
+        private final CMethod method;
+        private final Set<String> names;
+        private final boolean isStatic;
+        private final List<CStatement> statements;
+        private final Analysis analysis;
+        private final List<CMethod> helpers = new ArrayList<>();
+
+        Chain(CMethod method, Set<String> names) {
+            this.method = method;
+            this.names = names;
+            this.isStatic = method.accessSpecifier.isStatic;
+            this.statements = method.body.statements.getParameters();
+            val scope = new ArrayList<Variable>();
+            for (val param: method.paramList.getParameters()) {
+                scope.add(new Variable(param.getName(), param.getType(), -1));
+            }
+            this.analysis = new Analysis(statements, scope, true, Collections.emptySet());
+        }
+
+        /**
+         * @return The body for the statements from {@code start} on, with whatever does not fit moved into helpers.
+         */
+        CBlock chunk(int start) {
+            val n = statements.size();
+            val sizes = analysis.sizes;
+            int size = 1;
+            for (int i = start; i < n; i++) {
+                size += sizes[i];
+            }
+            if (size <= limit) {
+                return block(start, n, Collections.emptyList());
+            }
+            val last = statements.get(n - 1);
+            val prefix = size - sizes[n - 1];
+            if (last instanceof CSwitch && prefix <= limit / 2) {
+                val split = splitSwitch((CSwitch) last, limit - prefix);
+                if (split != null) return block(start, n - 1, Collections.singletonList(split));
+            }
+            int best = -1;
+            List<Variable> bestArgs = null;
+            size = 1;
+            for (int i = start; i < n - 1; i++) {
+                size += sizes[i];
+                if (best >= 0 && size > limit) break;
+                val args = analysis.liveAt(i + 1, isStatic);
+                if (args == null) continue;
+                val fits = size + callSize(args) <= limit;
+                if (fits || best < 0) {
+                    best = i + 1;
+                    bestArgs = args;
+                }
+                if (!fits) break;
+            }
+            if (best < 0) {
+                if (last instanceof CSwitch) {
+                    val split = splitSwitch((CSwitch) last, Math.max(limit - prefix, limit / 4));
+                    if (split != null) return block(start, n - 1, Collections.singletonList(split));
+                }
+                return block(start, n, Collections.emptyList());
+            }
+            val cut = best;
+            return block(start, cut, delegate(bestArgs, () -> chunk(cut)));
+        }
+
+        private CBlock block(int start, int end, List<CStatement> tail) {
+            val result = new ArrayList<CStatement>(end - start + tail.size());
+            result.addAll(statements.subList(start, end));
+            result.addAll(tail);
+            return CBlock.of(result);
+        }
+
+        private CSwitch splitSwitch(CSwitch statement, int budget) {
+            val index = statements.size() - 1;
+            //Uses a name that can't be passed on, such as a local declared without an initializer
+            if (analysis.blockedUntil[index] >= index) return null;
+            if (!isReevaluable(statement.selector)) return null;
+            val cases = new ArrayList<>(statement.cases);
+            for (int i = 0; i < cases.size() - 1; i++) {
+                if (!cases.get(i).labels.isEmpty()) continue;
+                //The default case has to be last, so that it ends up in the last helper
+                if (!endsAbruptly(cases.get(i)) || (i > 0 && !endsAbruptly(cases.get(i - 1)))) return null;
+                cases.add(cases.remove(i));
+                break;
+            }
+            for (val c: cases) {
+                if (containsBreak(c.body)) return null;
+            }
+            val scope = new ArrayList<Variable>();
+            for (val variable: analysis.variables) {
+                if (variable.declaredAt < index) scope.add(variable);
+            }
+            val selectorNames = new HashSet<String>();
+            mentions(statement.selector, selectorNames::add);
+            return switchChunk(statement.selector, cases, new Analysis(cases, scope, false, selectorNames), 0, budget);
+        }
+
+        private CSwitch switchChunk(CExpression selector, List<CSwitch.Case> cases, Analysis caseAnalysis, int start, int budget) {
+            val m = cases.size();
+            val sizes = caseAnalysis.sizes;
+            int size = selector.estimateBytecodeSize() + 12;
+            int total = size;
+            for (int i = start; i < m; i++) {
+                total += sizes[i];
+            }
+            if (total <= budget) {
+                return switchOf(selector, cases.subList(start, m), null);
+            }
+            int best = -1;
+            List<Variable> bestArgs = null;
+            for (int i = start; i < m - 1; i++) {
+                size += sizes[i];
+                if (best >= 0 && size > budget) break;
+                if (!endsAbruptly(cases.get(i))) continue;
+                val args = caseAnalysis.liveAt(i + 1, isStatic);
+                if (args == null) continue;
+                val fits = size + 8 + callSize(args) <= budget;
+                if (fits || best < 0) {
+                    best = i + 1;
+                    bestArgs = args;
+                }
+                if (!fits) break;
+            }
+            if (best < 0) {
+                return switchOf(selector, cases.subList(start, m), null);
+            }
+            val cut = best;
+            val tail = delegate(bestArgs, () -> CBlock.of(switchChunk(selector, cases, caseAnalysis, cut, limit - 1)));
+            return switchOf(selector, cases.subList(start, cut), new CSwitch.Case(Collections.emptyList(), CBlock.of(tail)));
+        }
+
+        private CSwitch switchOf(CExpression selector, List<CSwitch.Case> cases, CSwitch.Case defaultCase) {
+            val builder = CSwitch.builder().selector(selector).cases(cases);
+            if (defaultCase != null) builder.addCase(defaultCase);
+            return builder.build();
+        }
+
+        /**
+         * Adds a helper with the given parameters and body, which is built after the helper's name is reserved.
+         *
+         * @return The statements that call the helper in tail position.
+         */
+        private List<CStatement> delegate(List<Variable> args, Supplier<CBlock> body) {
+            String name;
+            for (int i = helpers.size() + 1; ; i++) {
+                name = method.name + "$" + i;
+                if (names.add(name)) break;
+            }
+            val position = helpers.size();
+            val params = CImmutableList.<CParameter>builder();
+            val arguments = new CExpression[args.size()];
+            for (int i = 0; i < arguments.length; i++) {
+                val arg = args.get(i);
+                params.addParam(CParameter.builder().type(arg.type).name(arg.name).build());
+                arguments[i] = new CVariable(arg.name);
+            }
+            helpers.add(position, CMethod.builder()
+                                         .accessSpecifier(AccessSpecifier.of(Modifier.PRIVATE | (isStatic ? Modifier.STATIC : 0)))
+                                         .returnType(method.returnType)
+                                         .name(name)
+                                         .paramList(params.build())
+                                         .body(body.get())
+                                         .build());
+            val call = CMethodCall.unqualified(name, arguments);
+            //Void chains only split at the end of the method or of a trailing switch, so the call can complete normally
+            return Collections.singletonList(method.returnType == CType.VOID ? new CExpressionStatement(call) : new CReturn(call));
+        }
+    }
+
+    /**
+     * Name usage of a list of sibling statements or switch cases, used to find the variables live at each cut.
+     */
+    private static final class Analysis {
+        private final int[] sizes;
+        private final List<Variable> variables;
+        private final Map<String, Integer> lastMention = new HashMap<>();
+        /**
+         * The last index mentioning a name declared before the given index, that can't be passed to a helper.
+         */
+        private final int[] blockedUntil;
+
+        /**
+         * @param declaresVariables True if the items are top-level statements, whose initialized locals can be passed to
+         *                          helpers. Locals declared in switch cases are never passed.
+         * @param alwaysLive Names that are live at every cut.
+         */
+        Analysis(List<? extends CodeElement> items, List<Variable> scope, boolean declaresVariables, Set<String> alwaysLive) {
+            val n = items.size();
+            sizes = new int[n];
+            variables = new ArrayList<>(scope.size());
+            val known = new HashSet<String>();
+            for (val variable: scope) {
+                variables.add(new Variable(variable.name, variable.type, -1));
+                known.add(variable.name);
+            }
+            val hidden = new ArrayList<List<String>>(n);
+            for (int i = 0; i < n; i++) {
+                val item = items.get(i);
+                val index = i;
+                sizes[i] = item.estimateBytecodeSize();
+                mentions(item, (name) -> lastMention.put(name, index));
+                val declared = new ArrayList<String>();
+                if (item instanceof CSwitch.Case) {
+                    //Case statements share the scope of the switch block
+                    for (val statement: ((CSwitch.Case) item).body.statements.getParameters()) {
+                        declarations(statement, declared::add);
+                    }
+                } else if (declaresVariables && item instanceof CLocalVariable && ((CLocalVariable) item).initializer != null) {
+                    val local = (CLocalVariable) item;
+                    variables.add(new Variable(local.name, local.type, i));
+                    known.add(local.name);
+                } else {
+                    declarations(item, declared::add);
+                }
+                declared.removeIf(known::contains);
+                hidden.add(declared);
+            }
+            for (val name: alwaysLive) {
+                lastMention.put(name, Integer.MAX_VALUE);
+            }
+            blockedUntil = new int[n + 1];
+            int blocked = -1;
+            for (int i = 0; i < n; i++) {
+                blockedUntil[i] = blocked;
+                for (val name: hidden.get(i)) {
+                    blocked = Math.max(blocked, lastMention.getOrDefault(name, -1));
+                }
+            }
+            blockedUntil[n] = blocked;
+        }
+
+        /**
+         * @return The variables to pass to a helper starting at the given index, or null if no cut can be made there.
+         */
+        List<Variable> liveAt(int cut, boolean isStatic) {
+            if (blockedUntil[cut] >= cut) return null;
+            val live = new ArrayList<Variable>();
+            int slots = isStatic ? 0 : 1;
+            for (val variable: variables) {
+                if (variable.declaredAt < cut && lastMention.getOrDefault(variable.name, -1) >= cut) {
+                    live.add(variable);
+                    slots += variable.type == CType.LONG || variable.type == CType.DOUBLE ? 2 : 1;
+                }
+            }
+            return slots > MAX_PARAMETER_SLOTS ? null : live;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static final class Variable {
+        private final String name;
+        private final CType type;
+        /**
+         * Index of the declaring statement, or -1 for parameters and enclosing locals.
+         */
+        private final int declaredAt;
+    }
+
+    /**
+     * @return The estimated size of the tail call statement, matching {@link CMethodCall} and {@link CReturn}.
+     */
+    private static int callSize(List<Variable> args) {
+        return 10 + 2 * args.size();
+    }
+
+    /**
+     * Visits every name the element may read or write: variables, and any identifier in raw code.
+     */
+    private static void mentions(CodeElement element, Consumer<String> action) {
+        if (element instanceof CVariable) {
+            action.accept(((CVariable) element).name);
+        } else if (element instanceof CRaw) {
+            identifiers(((CRaw) element).code, action);
+        }
+        element.forEachChild((child) -> mentions(child, action));
+    }
+
+    /**
+     * Visits the names a statement may declare in its enclosing scope.
+     */
+    private static void declarations(CodeElement statement, Consumer<String> action) {
+        if (statement instanceof CLocalVariable) {
+            action.accept(((CLocalVariable) statement).name);
+        } else if (statement instanceof CRaw) {
+            identifiers(((CRaw) statement).code, action);
+        } else if (statement instanceof CExpressionStatement && ((CExpressionStatement) statement).expression instanceof CRaw) {
+            identifiers(((CRaw) ((CExpressionStatement) statement).expression).code, action);
+        }
+    }
+
+    private static void identifiers(String code, Consumer<String> action) {
+        val length = code.length();
+        int i = 0;
+        while (i < length) {
+            val c = code.charAt(i);
+            if (c == '"' || c == '\'') {
+                //Skip the literal
+                i++;
+                while (i < length && code.charAt(i) != c) {
+                    if (code.charAt(i) == '\\') i++;
+                    i++;
+                }
+                i++;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                val start = i;
+                while (i < length && Character.isJavaIdentifierPart(code.charAt(i))) i++;
+                action.accept(code.substring(start, i));
+            } else if (Character.isJavaIdentifierPart(c)) {
+                //Digits of a number literal
+                while (i < length && Character.isJavaIdentifierPart(code.charAt(i))) i++;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private static boolean isReevaluable(CExpression selector) {
+        if (selector instanceof CVariable || selector instanceof CLiteral) return true;
+        if (selector instanceof CFieldAccess) {
+            val target = ((CFieldAccess) selector).target;
+            return target == null || isReevaluable(target);
+        }
+        return false;
+    }
+
+    private static boolean endsAbruptly(CSwitch.Case c) {
+        val statements = c.body.statements.getParameters();
+        if (statements.isEmpty()) return false;
+        val last = statements.get(statements.size() - 1);
+        return last instanceof CReturn || last instanceof CThrow;
+    }
+
+    /**
+     * @return True if the element may contain a break out of the enclosing switch. Raw code is assumed to break if it
+     * mentions the keyword anywhere.
+     */
+    private static boolean containsBreak(CodeElement element) {
+        if (element instanceof CJump) {
+            val jump = (CJump) element;
+            return !jump.isContinue && jump.label == null;
+        }
+        if (element instanceof CRaw) {
+            val found = new boolean[1];
+            identifiers(((CRaw) element).code, (name) -> found[0] |= name.equals("break"));
+            return found[0];
+        }
+        if (element instanceof CWhile || element instanceof CFor || element instanceof CForEach || element instanceof CSwitch) {
+            return false;
+        }
+        val found = new boolean[1];
+        element.forEachChild((child) -> found[0] |= !found[0] && containsBreak(child));
+        return found[0];
+    }
+}
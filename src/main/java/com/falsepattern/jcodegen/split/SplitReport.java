@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.split;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class SplitReport {
+    /**
+     * One entry per method that was over the limit before splitting.
+     */
+    @Getter
+    private final List<SplitResult> methods;
+    @Getter
+    private final int limit;
+
+    public int count(SplitResult.Status status) {
+        int count = 0;
+        for (SplitResult method: methods) {
+            if (method.getStatus() == status) count++;
+        }
+        return count;
+    }
+
+    public int totalHelpers() {
+        int total = 0;
+        for (SplitResult method: methods) {
+            total += method.getHelpers();
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d methods over %d bytes (%d split, %d oversized, %d opaque), %d helpers added",
+                             methods.size(),
+                             limit,
+                             count(SplitResult.Status.SPLIT),
+                             count(SplitResult.Status.OVERSIZED),
+                             count(SplitResult.Status.OPAQUE),
+                             totalHelpers());
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.split;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class SplitResult {
+    public enum Status {
+        /**
+         * The method and all of its helpers are within the limit.
+         */
+        SPLIT,
+        /**
+         * The method has a structured body, but at least one part is still over the limit, for example a single huge
+         * statement. It may still have been shortened.
+         */
+        OVERSIZED,
+        /**
+         * The method only has a code string and was left untouched.
+         */
+        OPAQUE
+    }
+    private final String method;
+    private final Status status;
+    private final int originalSize;
+    /**
+     * The estimated size of the largest of the method and its helpers after splitting.
+     */
+    private final int largestSize;
+    private final int helpers;
+
+    @Override
+    public String toString() {
+        return String.format("%s %s: %d -> %d bytes, %d helpers", status, method, originalSize, largestSize, helpers);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.template;
+
+import com.falsepattern.jcodegen.AccessSpecifier;
+import com.falsepattern.jcodegen.CClass;
+import com.falsepattern.jcodegen.CConstructor;
+import com.falsepattern.jcodegen.CField;
+import com.falsepattern.jcodegen.CImmutableList;
+import com.falsepattern.jcodegen.CMethod;
+import com.falsepattern.jcodegen.CParameter;
+import com.falsepattern.jcodegen.CType;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class model over type variables, which is expanded into concrete {@link CClass}es by binding every variable to a
+ * type, typically one of the primitive {@link CType} constants.
+ * <p>
+ * Member types may use the variables anywhere, including as type arguments and array components. Names, code and
+ * initializers may use the placeholders described in {@link TypeBindings}. Structured member bodies are copied
+ * unchanged, so they must not mention the variables.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class ClassTemplate {
+    @NonNull
+    private final String pkg;
+    /**
+     * May contain placeholders, for example {@code ${K.Title}${V.Title}HashMap}.
+     */
+    @NonNull
+    private final String name;
+    @Builder.Default
+    private final AccessSpecifier accessSpecifier = AccessSpecifier.of(AccessSpecifier.Visibility.PUBLIC);
+    @Builder.Default
+    private final CType superclass = CType.OBJECT;
+    @Singular
+    private final List<CType> typeVariables;
+    @Singular
+    private final List<CField> fields;
+    @Singular
+    private final List<CConstructor> constructors;
+    @Singular
+    private final List<CMethod> methods;
+
+    /**
+     * @param bindings Every type variable of the template mapped to the type it is replaced with.
+     */
+    public CClass expand(@NonNull Map<CType, CType> bindings) {
+        for (val variable: typeVariables) {
+            if (!bindings.containsKey(variable)) throw new IllegalArgumentException("Type variable " + variable.getName() + " of " + name + " is not bound");
+        }
+        val types = new TypeBindings(bindings);
+        val cClass = CClass.builder()
+                           .pkg(pkg)
+                           .name(types.substitute(name))
+                           .accessSpecifier(accessSpecifier)
+                           .superclass(types.substitute(superclass))
+                           .build();
+        for (val field: fields) {
+            cClass.addField(CField.builder()
+                                  .accessSpecifier(field.accessSpecifier)
+                                  .type(types.substitute(field.type))
+                                  .name(types.substitute(field.name))
+                                  .initializer(types.substitute(field.initializer))
+                                  .build());
+        }
+        for (val constructor: constructors) {
+            cClass.addConstructor(CConstructor.builder()
+                                              .accessSpecifier(constructor.accessSpecifier)
+                                              .paramList(substitute(types, constructor.paramList))
+                                              .code(types.substitute(constructor.code))
+                                              .body(constructor.body)
+                                              .build());
+        }
+        for (val method: methods) {
+            cClass.addMethod(CMethod.builder()
+                                    .accessSpecifier(method.accessSpecifier)
+                                    .returnType(types.substitute(method.returnType))
+                                    .name(types.substitute(method.name))
+                                    .paramList(substitute(types, method.paramList))
+                                    .code(types.substitute(method.code))
+                                    .body(method.body)
+                                    .build());
+        }
+        return cClass;
+    }
+
+    /**
+     * Expands the template for every combination of the given choices, with the first type variable varying slowest.
+     * @param choices The candidate types of every type variable of the template.
+     */
+    public List<CClass> expandAll(@NonNull Map<CType, ? extends Collection<CType>> choices) {
+        val options = new ArrayList<List<CType>>(typeVariables.size());
+        int combinations = 1;
+        for (val variable: typeVariables) {
+            val candidates = choices.get(variable);
+            if (candidates == null || candidates.isEmpty()) throw new IllegalArgumentException("No types given for type variable " + variable.getName() + " of " + name);
+            options.add(new ArrayList<>(candidates));
+            combinations = Math.multiplyExact(combinations, candidates.size());
+        }
+        val result = new ArrayList<CClass>(combinations);
+        val indices = new int[typeVariables.size()];
+        val bindings = new HashMap<CType, CType>();
+        for (int n = 0; n < combinations; n++) {
+            for (int i = 0; i < indices.length; i++) {
+                bindings.put(typeVariables.get(i), options.get(i).get(indices[i]));
+            }
+            result.add(expand(bindings));
+            for (int i = indices.length - 1; i >= 0; i--) {
+                if (++indices[i] < options.get(i).size()) break;
+                indices[i] = 0;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Expands the template with every type variable bound to each of the given types in turn.
+     */
+    public List<CClass> expandAll(@NonNull Collection<CType> types) {
+        val choices = new HashMap<CType, Collection<CType>>();
+        for (val variable: typeVariables) {
+            choices.put(variable, types);
+        }
+        return expandAll(choices);
+    }
+
+    private static CImmutableList<CParameter> substitute(TypeBindings types, CImmutableList<CParameter> params) {
+        val builder = CImmutableList.<CParameter>builder();
+        for (val param: params.getParameters()) {
+            builder.addParam(CParameter.builder().type(types.substitute(param.getType())).name(types.substitute(param.getName())).build());
+        }
+        return builder.build();
+    }
+}
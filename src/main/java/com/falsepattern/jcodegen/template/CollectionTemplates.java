@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.template;
+
+import com.falsepattern.jcodegen.AccessSpecifier;
+import com.falsepattern.jcodegen.CConstructor;
+import com.falsepattern.jcodegen.CField;
+import com.falsepattern.jcodegen.CImmutableList;
+import com.falsepattern.jcodegen.CMethod;
+import com.falsepattern.jcodegen.CParameter;
+import com.falsepattern.jcodegen.CType;
+import lombok.val;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ready-made templates of collections specialized for primitive element types. They rely on the static
+ * {@code hashCode}/{@code compare} methods of the wrapper classes, so they can only be bound to primitive types.
+ */
+public final class CollectionTemplates {
+    public static final CType K = CType.typeVariable("K");
+    public static final CType V = CType.typeVariable("V");
+    public static final CType E = CType.typeVariable("E");
+    /**
+     * Every primitive type except void.
+     */
+    public static final List<CType> PRIMITIVES = Collections.unmodifiableList(Arrays.asList(CType.BOOLEAN, CType.BYTE, CType.CHAR, CType.SHORT, CType.INT, CType.LONG, CType.FLOAT, CType.DOUBLE));
+
+    private static final AccessSpecifier PUBLIC = AccessSpecifier.of(AccessSpecifier.Visibility.PUBLIC);
+    private static final AccessSpecifier PRIVATE = AccessSpecifier.of(AccessSpecifier.Visibility.PRIVATE);
+
+    private CollectionTemplates() {}
+
+    /**
+     * {@code ${K.Title}${V.Title}HashMap}: an open addressing hash map with linear probing, backward shift deletion
+     * and a load factor of 0.75. Missing keys are reported through a caller supplied default value.
+     */
+    public static ClassTemplate hashMap(String pkg) {
+        return ClassTemplate.builder()
+                            .pkg(pkg)
+                            .name("${K.Title}${V.Title}HashMap")
+                            .typeVariable(K)
+                            .typeVariable(V)
+                            .field(CField.builder().accessSpecifier(PRIVATE).type(K.arrayOf()).name("keys").build())
+                            .field(CField.builder().accessSpecifier(PRIVATE).type(V.arrayOf()).name("values").build())
+                            .field(CField.builder().accessSpecifier(PRIVATE).type(CType.BOOLEAN.arrayOf()).name("used").build())
+                            .field(CField.builder().accessSpecifier(PRIVATE).type(CType.INT).name("size").build())
+                            .field(CField.builder().accessSpecifier(PRIVATE).type(CType.INT).name("mask").build())
+                            .constructor(CConstructor.builder().accessSpecifier(PUBLIC).code("this(16);").build())
+                            .constructor(CConstructor.builder()
+                                                     .accessSpecifier(PUBLIC)
+                                                     .paramList(params(CType.INT, "expectedSize"))
+                                                     .code("if (expectedSize < 0) throw new IllegalArgumentException(\"Negative size: \" + expectedSize);\n" +
+                                                           "int capacity = 2;\n" +
+                                                           "while (capacity * 3L < expectedSize * 4L) capacity <<= 1;\n" +
+                                                           "allocate(capacity);")
+                                                     .build())
+                            .method(method(PRIVATE, CType.VOID, "allocate", params(CType.INT, "capacity"),
+                                           "keys = new ${K}[capacity];\n" +
+                                           "values = new ${V}[capacity];\n" +
+                                           "used = new boolean[capacity];\n" +
+                                           "mask = capacity - 1;"))
+                            .method(method(PRIVATE, CType.INT, "slot", params(K, "key"),
+                                           "int h = ${K.Boxed}.hashCode(key) * 0x9E3779B9;\n" +
+                                           "return (h ^ (h >>> 16)) & mask;"))
+                            .method(method(PRIVATE, CType.INT, "indexOf", params(K, "key"),
+                                           "for (int i = slot(key); used[i]; i = (i + 1) & mask) {\n" +
+                                           "    if (${K.Boxed}.compare(keys[i], key) == 0) return i;\n" +
+                                           "}\n" +
+                                           "return -1;"))
+                            .method(method(PUBLIC, CType.VOID, "put", params(K, "key", V, "value"),
+                                           "int i = slot(key);\n" +
+                                           "for (; used[i]; i = (i + 1) & mask) {\n" +
+                                           "    if (${K.Boxed}.compare(keys[i], key) == 0) {\n" +
+                                           "        values[i] = value;\n" +
+                                           "        return;\n" +
+                                           "    }\n" +
+                                           "}\n" +
+                                           "keys[i] = key;\n" +
+                                           "values[i] = value;\n" +
+                                           "used[i] = true;\n" +
+                                           "if (++size * 4L >= keys.length * 3L) grow();"))
+                            .method(method(PUBLIC, V, "get", params(K, "key", V, "missing"),
+                                           "int i = indexOf(key);\n" +
+                                           "return i < 0 ? missing : values[i];"))
+                            .method(method(PUBLIC, CType.BOOLEAN, "containsKey", params(K, "key"),
+                                           "return indexOf(key) >= 0;"))
+                            .method(method(PUBLIC, CType.BOOLEAN, "remove", params(K, "key"),
+                                           "int hole = indexOf(key);\n" +
+                                           "if (hole < 0) return false;\n" +
+                                           "used[hole] = false;\n" +
+                                           "size--;\n" +
+                                           "for (int i = (hole + 1) & mask; used[i]; i = (i + 1) & mask) {\n" +
+                                           "    int home = slot(keys[i]);\n" +
+                                           "    boolean stays = i > hole ? home > hole && home <= i : home > hole || home <= i;\n" +
+                                           "    if (!stays) {\n" +
+                                           "        keys[hole] = keys[i];\n" +
+                                           "        values[hole] = values[i];\n" +
+                                           "        used[hole] = true;\n" +
+                                           "        used[i] = false;\n" +
+                                           "        hole = i;\n" +
+                                           "    }\n" +
+                                           "}\n" +
+                                           "return true;"))
+                            .method(method(PUBLIC, CType.INT, "size", params(), "return size;"))
+                            .method(method(PUBLIC, CType.VOID, "clear", params(),
+                                           "java.util.Arrays.fill(used, false);\n" +
+                                           "size = 0;"))
+                            .method(method(PRIVATE, CType.VOID, "grow", params(),
+                                           "${K}[] oldKeys = keys;\n" +
+                                           "${V}[] oldValues = values;\n" +
+                                           "boolean[] oldUsed = used;\n" +
+                                           "allocate(keys.length * 2);\n" +
+                                           "for (int j = 0; j < oldKeys.length; j++) {\n" +
+                                           "    if (!oldUsed[j]) continue;\n" +
+                                           "    int i = slot(oldKeys[j]);\n" +
+                                           "    while (used[i]) i = (i + 1) & mask;\n" +
+                                           "    keys[i] = oldKeys[j];\n" +
+                                           "    values[i] = oldValues[j];\n" +
+                                           "    used[i] = true;\n" +
+                                           "}"))
+                            .build();
+    }
+
+    /**
+     * {@code ${E.Title}ArrayList}: a growable array list.
+     */
+    public static ClassTemplate arrayList(String pkg) {
+        return ClassTemplate.builder()
+                            .pkg(pkg)
+                            .name("${E.Title}ArrayList")
+                            .typeVariable(E)
+                            .field(CField.builder().accessSpecifier(PRIVATE).type(E.arrayOf()).name("elements").build())
+                            .field(CField.builder().accessSpecifier(PRIVATE).type(CType.INT).name("size").build())
+                            .constructor(CConstructor.builder().accessSpecifier(PUBLIC).code("this(10);").build())
+                            .constructor(CConstructor.builder()
+                                                     .accessSpecifier(PUBLIC)
+                                                     .paramList(params(CType.INT, "initialCapacity"))
+                                                     .code("if (initialCapacity < 0) throw new IllegalArgumentException(\"Negative capacity: \" + initialCapacity);\n" +
+                                                           "elements = new ${E}[initialCapacity];")
+                                                     .build())
+                            .method(method(PUBLIC, CType.VOID, "add", params(E, "element"),
+                                           "if (size == elements.length) elements = java.util.Arrays.copyOf(elements, Math.max(8, size + (size >> 1)));\n" +
+                                           "elements[size++] = element;"))
+                            .method(method(PUBLIC, E, "get", params(CType.INT, "index"),
+                                           "if (index >= size) throw new IndexOutOfBoundsException(\"Index: \" + index + \", Size: \" + size);\n" +
+                                           "return elements[index];"))
+                            .method(method(PUBLIC, E, "set", params(CType.INT, "index", E, "element"),
+                                           "if (index >= size) throw new IndexOutOfBoundsException(\"Index: \" + index + \", Size: \" + size);\n" +
+                                           "${E} previous = elements[index];\n" +
+                                           "elements[index] = element;\n" +
+                                           "return previous;"))
+                            .method(method(PUBLIC, E, "removeLast", params(),
+                                           "if (size == 0) throw new java.util.NoSuchElementException();\n" +
+                                           "return elements[--size];"))
+                            .method(method(PUBLIC, CType.INT, "size", params(), "return size;"))
+                            .method(method(PUBLIC, CType.VOID, "clear", params(), "size = 0;"))
+                            .method(method(PUBLIC, E.arrayOf(), "toArray", params(), "return java.util.Arrays.copyOf(elements, size);"))
+                            .build();
+    }
+
+    private static CMethod method(AccessSpecifier access, CType returnType, String name, CImmutableList<CParameter> params, String code) {
+        return CMethod.builder().accessSpecifier(access).returnType(returnType).name(name).paramList(params).code(code).build();
+    }
+
+    /**
+     * @param typesAndNames Alternating {@link CType}s and parameter names.
+     */
+    private static CImmutableList<CParameter> params(Object... typesAndNames) {
+        val builder = CImmutableList.<CParameter>builder();
+        for (int i = 0; i < typesAndNames.length; i += 2) {
+            builder.addParam(CParameter.builder().type((CType) typesAndNames[i]).name((String) typesAndNames[i + 1]).build());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.template;
+
+import com.falsepattern.jcodegen.CType;
+import lombok.val;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Substitutes the type variables of a template, both in {@link CType}s and in placeholders inside code strings.
+ * <p>
+ * Placeholders have the form {@code ${K}} (the bound type), {@code ${K.Boxed}} (its wrapper class for primitives, the
+ * type itself otherwise) or {@code ${K.Title}} (its capitalized simple name, for building identifiers such as
+ * {@code IntArrayList}). Reference types outside of {@code java.lang} are spelled fully qualified. {@code $} not followed by {@code {} is kept.
+ */
+public final class TypeBindings {
+    private final Map<CType, CType> bindings;
+    private final Map<String, CType> byName = new HashMap<>();
+
+    /**
+     * @param bindings Type variables mapped to the types they are replaced with.
+     */
+    public TypeBindings(Map<CType, CType> bindings) {
+        this.bindings = new HashMap<>(bindings);
+        for (val entry: bindings.entrySet()) {
+            if (!entry.getKey().isTypeVariable() || entry.getKey().isArray()) throw new IllegalArgumentException("Not a type variable: " + entry.getKey().getName());
+            if (entry.getValue().isWildcard() || entry.getValue() == CType.VOID) throw new IllegalArgumentException("Cannot bind " + entry.getKey().getName() + " to " + entry.getValue().getName());
+            byName.put(entry.getKey().getName(), entry.getValue());
+        }
+    }
+
+    public CType get(CType typeVariable) {
+        return bindings.get(typeVariable);
+    }
+
+    public CType substitute(CType type) {
+        return substitute(type, false);
+    }
+
+    /**
+     * @param argument True if the type is a type argument, where primitives are replaced by their wrapper class.
+     */
+    private CType substitute(CType type, boolean argument) {
+        switch (type.getKind()) {
+            case TYPE_VARIABLE: {
+                val bound = bindings.get(type.arrayBaseType());
+                if (bound == null) return type;
+                CType result = argument && type.arrayDimensions() == 0 ? boxed(bound) : bound;
+                for (int i = 0; i < type.arrayDimensions(); i++) {
+                    result = result.arrayOf();
+                }
+                return result;
+            }
+            case CLASS: {
+                if (type.isRaw()) return type;
+                val arguments = type.getTypeArguments();
+                val substituted = new CType[arguments.size()];
+                for (int i = 0; i < substituted.length; i++) {
+                    substituted[i] = substitute(arguments.get(i), true);
+                }
+                CType result = type.erasure().arrayBaseType().withTypeArguments(substituted);
+                for (int i = 0; i < type.arrayDimensions(); i++) {
+                    result = result.arrayOf();
+                }
+                return result;
+            }
+            case WILDCARD_EXTENDS:
+                return CType.wildcardExtends(substitute(type.getBound(), true));
+            case WILDCARD_SUPER:
+                return CType.wildcardSuper(substitute(type.getBound(), true));
+            default:
+                return type;
+        }
+    }
+
+    /**
+     * Replaces every placeholder in the given text.
+     * @throws IllegalArgumentException If a placeholder refers to an unbound variable or an unknown attribute.
+     */
+    public String substitute(String text) {
+        if (text == null) return null;
+        int start = text.indexOf("${");
+        if (start < 0) return text;
+        val result = new StringBuilder(text.length() + 16);
+        int copied = 0;
+        while (start >= 0) {
+            val end = text.indexOf('}', start + 2);
+            if (end < 0) throw new IllegalArgumentException("Unterminated placeholder in: " + text);
+            result.append(text, copied, start).append(resolve(text.substring(start + 2, end)));
+            copied = end + 1;
+            start = text.indexOf("${", copied);
+        }
+        return result.append(text, copied, text.length()).toString();
+    }
+
+    private String resolve(String placeholder) {
+        val dot = placeholder.indexOf('.');
+        val variable = dot < 0 ? placeholder : placeholder.substring(0, dot);
+        val type = byName.get(variable);
+        if (type == null) throw new IllegalArgumentException("Unbound type variable in placeholder ${" + placeholder + "}");
+        if (dot < 0) return nameOf(type);
+        switch (placeholder.substring(dot + 1)) {
+            case "Boxed": return nameOf(boxed(type));
+            case "Title": return title(type);
+            default: throw new IllegalArgumentException("Unknown placeholder attribute in ${" + placeholder + "}");
+        }
+    }
+
+    private static String nameOf(CType type) {
+        val raw = type.erasure().getNameAsImport();
+        val implicit = raw.startsWith("java.lang.") && raw.indexOf('.', "java.lang.".length()) < 0;
+        return type.isPrimitive() || (implicit && type.isRaw()) ? type.getSimpleName() : type.getName();
+    }
+
+    /**
+     * @return The wrapper class of a primitive (non-array) type, or the type itself.
+     */
+    public static CType boxed(CType type) {
+        if (!type.isPrimitive() || type.isArray()) return type;
+        switch (type.getNameAsImport()) {
+            case "boolean": return CType.of(Boolean.class);
+            case "byte": return CType.of(Byte.class);
+            case "char": return CType.of(Character.class);
+            case "short": return CType.of(Short.class);
+            case "int": return CType.of(Integer.class);
+            case "long": return CType.of(Long.class);
+            case "float": return CType.of(Float.class);
+            case "double": return CType.of(Double.class);
+            default: return CType.of(Void.class);
+        }
+    }
+
+    /**
+     * @return The capitalized simple name of the type, with "Array" appended per array dimension.
+     */
+    public static String title(CType type) {
+        val name = type.erasure().arrayBaseType().getSimpleName();
+        val result = new StringBuilder(name.length() + type.arrayDimensions() * 5);
+        result.append(Character.toUpperCase(name.charAt(0))).append(name, 1, name.length());
+        for (int i = 0; i < type.arrayDimensions(); i++) {
+            result.append("Array");
+        }
+        return result.toString();
+    }
+}
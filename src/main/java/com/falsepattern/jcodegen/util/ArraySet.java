@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.util;
+
+import lombok.val;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Immutable set backed by a plain array with linear lookups, for the small sets that dominate type carriers.
+ */
+public final class ArraySet<E> extends AbstractSet<E> {
+    private static final int MAX_ARRAY_SIZE = 8;
+
+    private final Object[] elements;
+
+    private ArraySet(Object[] elements) {
+        this.elements = elements;
+    }
+
+    /**
+     * @return An immutable copy of the given elements, in encounter order, without duplicates.
+     */
+    public static <E> Set<E> copyOf(Collection<? extends E> collection) {
+        val size = collection.size();
+        if (size == 0) return Collections.emptySet();
+        if (size == 1) return Collections.singleton(collection.iterator().next());
+        if (size > MAX_ARRAY_SIZE) return Collections.unmodifiableSet(new LinkedHashSet<>(collection));
+        val elements = new Object[size];
+        int count = 0;
+        outer:
+        for (val element: collection) {
+            for (int i = 0; i < count; i++) {
+                if (elements[i].equals(element)) continue outer;
+            }
+            elements[count++] = element;
+        }
+        if (count == 1) return Collections.singleton(collection.iterator().next());
+        return new ArraySet<>(count == size ? elements : Arrays.copyOf(elements, count));
+    }
+
+    @Override
+    public int size() {
+        return elements.length;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        for (val element: elements) {
+            if (element.equals(o)) return true;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        for (val element: elements) {
+            action.accept((E) element);
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < elements.length;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public E next() {
+                if (index >= elements.length) throw new NoSuchElementException();
+                return (E) elements[index++];
+            }
+        };
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Appendable wrapper that prefixes every non-empty line with the current indentation as the text passes through.
+ * Line terminators (CR, LF and CRLF) are normalized to LF.
+ */
+public class IndentingAppendable implements Appendable {
+    private final Appendable out;
+    private int indent = 0;
+    private boolean lineStart = true;
+    private boolean afterCR = false;
+
+    public IndentingAppendable(Appendable out) {
+        this.out = out;
+    }
+
+    public static IndentingAppendable of(Appendable out) {
+        return out instanceof IndentingAppendable ? (IndentingAppendable) out : new IndentingAppendable(out);
+    }
+
+    public IndentingAppendable indent(int amount) {
+        indent += amount;
+        return this;
+    }
+
+    public IndentingAppendable outdent(int amount) {
+        indent = Math.max(0, indent - amount);
+        return this;
+    }
+
+    /**
+     * Writes a multi-line block, terminating its last line. Trailing line terminators of the block are dropped, and an
+     * empty block writes nothing.
+     */
+    public IndentingAppendable appendBlock(CharSequence block) throws IOException {
+        int end = block.length();
+        while (end > 0 && isLineTerminator(block.charAt(end - 1))) {
+            end--;
+        }
+        if (end > 0) {
+            append(block, 0, end);
+            append('\n');
+        }
+        return this;
+    }
+
+    @Override
+    public IndentingAppendable append(CharSequence csq) throws IOException {
+        if (csq == null) csq = "null";
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public IndentingAppendable append(CharSequence csq, int start, int end) throws IOException {
+        if (csq == null) csq = "null";
+        int runStart = start;
+        for (int i = start; i < end; i++) {
+            char c = csq.charAt(i);
+            if (isLineTerminator(c)) {
+                if (runStart < i) {
+                    writeRun(csq, runStart, i);
+                }
+                newline(c);
+                runStart = i + 1;
+            }
+        }
+        if (runStart < end) {
+            writeRun(csq, runStart, end);
+        }
+        return this;
+    }
+
+    @Override
+    public IndentingAppendable append(char c) throws IOException {
+        if (isLineTerminator(c)) {
+            newline(c);
+        } else {
+            if (lineStart) writeIndent();
+            afterCR = false;
+            out.append(c);
+        }
+        return this;
+    }
+
+    private void writeRun(CharSequence csq, int start, int end) throws IOException {
+        if (lineStart) writeIndent();
+        afterCR = false;
+        if (out instanceof Writer && csq instanceof String) {
+            //Writer.append(CharSequence, int, int) would allocate a substring for every line
+            ((Writer) out).write((String) csq, start, end - start);
+        } else {
+            out.append(csq, start, end);
+        }
+    }
+
+    private void newline(char c) throws IOException {
+        if (c == '\n' && afterCR) {
+            afterCR = false;
+            return;
+        }
+        afterCR = c == '\r';
+        lineStart = true;
+        out.append('\n');
+    }
+
+    private void writeIndent() throws IOException {
+        StringUtil.appendPrefix(out, indent);
+        lineStart = false;
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r';
+    }
+}
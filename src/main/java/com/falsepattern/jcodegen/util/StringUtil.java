@@ -2,6 +2,9 @@ package com.falsepattern.jcodegen.util;
 
 import lombok.val;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 public class StringUtil {
     private static final int HIGHEST_GENERATED_PREFIX = 16;
     private static final String[] prefixes = new String[HIGHEST_GENERATED_PREFIX + 1];
@@ -12,28 +15,33 @@ public class StringUtil {
             pfb.append(' ');
         }
     }
-    private static String getPrefix(int indent) {
-        if (indent <= HIGHEST_GENERATED_PREFIX) {
-            return prefixes[indent];
-        } else {
-            StringBuilder result = new StringBuilder(indent);
-            while (indent > HIGHEST_GENERATED_PREFIX) {
-                result.append(prefixes[HIGHEST_GENERATED_PREFIX]);
-                indent -= HIGHEST_GENERATED_PREFIX;
-            }
-            result.append(prefixes[indent]);
-            return result.toString();
+    static void appendPrefix(Appendable out, int indent) throws IOException {
+        while (indent > HIGHEST_GENERATED_PREFIX) {
+            out.append(prefixes[HIGHEST_GENERATED_PREFIX]);
+            indent -= HIGHEST_GENERATED_PREFIX;
         }
+        out.append(prefixes[indent]);
     }
-    public static String indent(String str, int indent) {
-        val prefix = getPrefix(indent);
-        val lines = str.split("\r|\r\n|\n");
-        val b = new StringBuilder(str.length() + indent * lines.length);
-        for (val line: lines) {
-            b.append(prefix);
-            b.append(line);
-            b.append('\n');
+
+    /**
+     * Indents every non-empty line of the text, terminating each line with LF. CR, LF and CRLF are all recognized as
+     * line terminators, and trailing line terminators are dropped.
+     */
+    public static String indent(CharSequence str, int indent) {
+        val b = new StringBuilder(str.length() + (indent << 4));
+        try {
+            indent(str, indent, b);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
         return b.toString();
     }
+
+    /**
+     * Same as {@link #indent(CharSequence, int)}, but scans the text straight into the target. If the target is an
+     * {@link IndentingAppendable}, the indentation is nested inside its current one.
+     */
+    public static void indent(CharSequence str, int indent, Appendable out) throws IOException {
+        IndentingAppendable.of(out).indent(indent).appendBlock(str).outdent(indent);
+    }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2021 FalsePattern
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.falsepattern.jcodegen.util;
+
+import lombok.NonNull;
+import lombok.val;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Intern table holding its canonical instances through weak references, so instances that are no longer used elsewhere
+ * can still be collected. Equivalence is supplied by the caller instead of relying on equals/hashCode.
+ */
+public final class WeakInterner<T> {
+    private final ToIntFunction<? super T> hasher;
+    private final BiPredicate<? super T, ? super T> equivalence;
+    private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+    private Entry<T>[] table = newTable(16);
+    private int size;
+
+    public WeakInterner(@NonNull ToIntFunction<? super T> hasher, @NonNull BiPredicate<? super T, ? super T> equivalence) {
+        this.hasher = hasher;
+        this.equivalence = equivalence;
+    }
+
+    /**
+     * Interner using the regular equals/hashCode of the values.
+     */
+    public static <T> WeakInterner<T> natural() {
+        return new WeakInterner<>(Object::hashCode, Object::equals);
+    }
+
+    /**
+     * @return The canonical instance equivalent to the given value. The value itself becomes canonical if there was none.
+     */
+    public synchronized T intern(@NonNull T value) {
+        expunge();
+        val hash = spread(hasher.applyAsInt(value));
+        val index = hash & (table.length - 1);
+        for (Entry<T> entry = table[index]; entry != null; entry = entry.next) {
+            if (entry.hash != hash) continue;
+            val existing = entry.get();
+            if (existing != null && equivalence.test(existing, value)) {
+                return existing;
+            }
+        }
+        table[index] = new Entry<>(value, queue, hash, table[index]);
+        if (++size > table.length - (table.length >>> 2)) {
+            resize();
+        }
+        return value;
+    }
+
+    /**
+     * @return The amount of canonical instances that have not been collected yet.
+     */
+    public synchronized int size() {
+        expunge();
+        return size;
+    }
+
+    private void expunge() {
+        Object stale;
+        while ((stale = queue.poll()) != null) {
+            @SuppressWarnings("unchecked")
+            val entry = (Entry<T>) stale;
+            val index = entry.hash & (table.length - 1);
+            Entry<T> previous = null;
+            for (Entry<T> current = table[index]; current != null; previous = current, current = current.next) {
+                if (current == entry) {
+                    if (previous == null) {
+                        table[index] = current.next;
+                    } else {
+                        previous.next = current.next;
+                    }
+                    size--;
+                    break;
+                }
+            }
+        }
+    }
+
+    private void resize() {
+        val old = table;
+        table = newTable(old.length * 2);
+        for (Entry<T> head : old) {
+            while (head != null) {
+                val next = head.next;
+                val index = head.hash & (table.length - 1);
+                head.next = table[index];
+                table[index] = head;
+                head = next;
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Entry<T>[] newTable(int length) {
+        return (Entry<T>[]) new Entry<?>[length];
+    }
+
+    private static final class Entry<T> extends WeakReference<T> {
+        private final int hash;
+        private Entry<T> next;
+
+        private Entry(T referent, ReferenceQueue<T> queue, int hash, Entry<T> next) {
+            super(referent, queue);
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+}